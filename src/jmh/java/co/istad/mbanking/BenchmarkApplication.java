@@ -0,0 +1,42 @@
+package co.istad.mbanking;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application (on a random port, see local.server.port) for benchmarks that need a real database.
+ * Point it at a disposable local Postgres (the schema is dropped and recreated on every start):
+ * MBANKING_BENCH_DB_URL (default jdbc:postgresql://localhost:5432/mbanking_bench),
+ * MBANKING_BENCH_DB_USERNAME and MBANKING_BENCH_DB_PASSWORD (default postgres / postgres).
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        List<String> settings = new ArrayList<>(List.of(
+                "spring.datasource.url=" + env("MBANKING_BENCH_DB_URL", "jdbc:postgresql://localhost:5432/mbanking_bench"),
+                "spring.datasource.username=" + env("MBANKING_BENCH_DB_USERNAME", "postgres"),
+                "spring.datasource.password=" + env("MBANKING_BENCH_DB_PASSWORD", "postgres"),
+                "spring.jpa.properties.hibernate.show_sql=false",
+                "server.port=0",
+                "mbanking.card.number.secret=" + env("MBANKING_CARD_NUMBER_SECRET", "benchmark-card-number-secret"),
+                "mbanking.security.jwt.key-store.directory=build/jmh-keys",
+                "mbanking.mail.outbox.poll-interval-ms=3600000"));
+        settings.addAll(List.of(properties));
+
+        // Passed as command-line arguments so they override application.properties
+        return new SpringApplicationBuilder(Sbc11MbankingApiApplication.class)
+                .run(settings.stream().map(setting -> "--" + setting).toArray(String[]::new));
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+}
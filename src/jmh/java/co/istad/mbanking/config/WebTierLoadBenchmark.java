@@ -0,0 +1,106 @@
+package co.istad.mbanking.config;
+
+import co.istad.mbanking.BenchmarkApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the web tier: 256 concurrent clients call an authenticated, database-backed endpoint
+ * (GET /api/v1/accounts/current-accounts) with virtual threads on (with and without the bulkhead) and off.
+ * Throughput mode gives requests per ms; read the ok counter (200 responses) as the served throughput,
+ * since rejected (503) or failed requests finish fast and are counted apart in failed.
+ * SampleTime mode gives the latency percentiles (p0.99 = p99) of every response.
+ * Needs a local Postgres, see BenchmarkApplication.
+ * Run with: gradle jmh -PjmhIncludes=WebTierLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+public class WebTierLoadBenchmark {
+
+    // virtual-bulkhead adds ConcurrencyLimitFilter in front of the virtual-thread web tier
+    @Param({"virtual", "virtual-bulkhead", "platform"})
+    public String webTier;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        context = BenchmarkApplication.start(
+                "spring.threads.virtual.enabled=" + !webTier.equals("platform"),
+                "mbanking.web.bulkhead.enabled=" + webTier.equals("virtual-bulkhead"),
+                "logging.level.co.istad.mbanking.config=ERROR");
+        String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        HttpResponse<String> login = httpClient.send(HttpRequest.newBuilder(URI.create(baseUri + "/api/v1/auth/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"email\":\"customer@gmail.com\",\"password\":\"Qwer123@#$\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (login.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with " + login.statusCode() + ": " + login.body());
+        }
+        String accessToken = context.getBean(ObjectMapper.class).readTree(login.body())
+                .findValue("accessToken").asText();
+
+        request = HttpRequest.newBuilder(URI.create(baseUri + "/api/v1/accounts/current-accounts"))
+                .header("Authorization", "Bearer " + accessToken)
+                .GET()
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void currentAccounts(Responses responses) throws IOException, InterruptedException {
+        if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+            responses.ok++;
+        } else {
+            responses.failed++;
+        }
+    }
+
+    // Reported next to the primary score as currentAccounts:ok and currentAccounts:failed
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Responses {
+
+        public long ok;
+        public long failed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ok = 0;
+            failed = 0;
+        }
+
+    }
+
+}
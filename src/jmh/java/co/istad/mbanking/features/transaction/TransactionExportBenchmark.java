@@ -0,0 +1,146 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.BenchmarkApplication;
+import co.istad.mbanking.domain.Account;
+import co.istad.mbanking.domain.UserAccount;
+import co.istad.mbanking.features.account.UserAccountRepository;
+import co.istad.mbanking.features.user.UserRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Timeout;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams `rows` transactions through TransactionService.exportTransactions into a discarding stream,
+ * in a JVM capped at 256 MB of heap: finishing at all shows the export does not hold the result in memory.
+ * Reported next to the time per export: exportAll:peakHeapMb (peak used heap during the export)
+ * and exportAll:exportedMb (bytes written).
+ * Seeding 10M rows takes a few minutes. Needs a local Postgres, see BenchmarkApplication.
+ * Run with: gradle jmh -PjmhIncludes=TransactionExportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+// One export takes minutes and can outlast JMH's default 10-minute iteration timeout
+@Timeout(time = 30, timeUnit = TimeUnit.MINUTES)
+public class TransactionExportBenchmark {
+
+    @Param({"10000000"})
+    public int rows;
+
+    @Param({"CSV", "NDJSON"})
+    public TransactionExportFormat format;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private List<MemoryPoolMXBean> heapPools;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        transactionService = context.getBean(TransactionService.class);
+        heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+
+        Account newAccount = new Account();
+        newAccount.setActNo("920000002");
+        newAccount.setAliasName("export benchmark");
+        newAccount.setBalance(BigDecimal.ZERO);
+        newAccount.setTransferLimit(BigDecimal.TEN);
+        newAccount.setIsHidden(false);
+        newAccount.setIsDeleted(false);
+
+        UserAccount userAccount = new UserAccount();
+        userAccount.setUser(context.getBean(UserRepository.class).findByEmail("customer@gmail.com").orElseThrow());
+        userAccount.setAccount(newAccount);
+        userAccount.setIsBlocked(false);
+        userAccount.setIsDeleted(false);
+        userAccount.setCreatedAt(LocalDateTime.now());
+        Integer accountId = context.getBean(UserAccountRepository.class).save(userAccount).getAccount().getId();
+
+        // Transfers to itself spread over the last year, written by Postgres itself
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("""
+                INSERT INTO transactions (id, owner_id, receiver_id, amount, remark, transaction_type,
+                                          transaction_at, status, is_deleted)
+                SELECT nextval('transactions_seq'), ?, ?, 1.00, 'export benchmark ' || g, 'TRANSFER',
+                       now() - (g % 31536000) * interval '1 second', true, false
+                FROM generate_series(1, ?) g
+                """, accountId, accountId, rows);
+        jdbcTemplate.execute("ANALYZE transactions");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void exportAll(Footprint footprint) throws IOException {
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        CountingOutputStream out = new CountingOutputStream();
+        transactionService.exportTransactions(null, LocalDate.EPOCH, LocalDate.now(), null, format).writeTo(out);
+
+        // Sum of per-pool peaks, so an upper bound of the heap in use at any one time
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        footprint.peakHeapMb = Math.max(footprint.peakHeapMb, peakHeap >> 20);
+        footprint.exportedMb = out.count >> 20;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        public long peakHeapMb;
+        public long exportedMb;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            peakHeapMb = 0;
+            exportedMb = 0;
+        }
+
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+    }
+
+}
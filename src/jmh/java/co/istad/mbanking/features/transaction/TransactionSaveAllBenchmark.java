@@ -0,0 +1,100 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.BenchmarkApplication;
+import co.istad.mbanking.base.BasedTransactionType;
+import co.istad.mbanking.domain.Account;
+import co.istad.mbanking.domain.Transaction;
+import co.istad.mbanking.domain.UserAccount;
+import co.istad.mbanking.features.account.UserAccountRepository;
+import co.istad.mbanking.features.user.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of TransactionRepository.saveAll against a local Postgres (see BenchmarkApplication).
+ * batchSize=1 sends one INSERT per round trip, as with the former IDENTITY ids;
+ * batchSize=50 is the configured JDBC batching on top of pooled-lo sequence ids.
+ * Run with: gradle jmh -PjmhIncludes=TransactionSaveAllBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransactionSaveAllBenchmark {
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    @Param({"1000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private TransactionRepository transactionRepository;
+    private TransactionTemplate transactionTemplate;
+    private Account account;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+        transactionRepository = context.getBean(TransactionRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        Account newAccount = new Account();
+        newAccount.setActNo("920000001");
+        newAccount.setAliasName("saveAll benchmark");
+        newAccount.setBalance(BigDecimal.ZERO);
+        newAccount.setTransferLimit(BigDecimal.TEN);
+        newAccount.setIsHidden(false);
+        newAccount.setIsDeleted(false);
+
+        UserAccount userAccount = new UserAccount();
+        userAccount.setUser(context.getBean(UserRepository.class).findByEmail("customer@gmail.com").orElseThrow());
+        userAccount.setAccount(newAccount);
+        userAccount.setIsBlocked(false);
+        userAccount.setIsDeleted(false);
+        userAccount.setCreatedAt(LocalDateTime.now());
+        account = context.getBean(UserAccountRepository.class).save(userAccount).getAccount();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Transaction> saveAll() {
+        LocalDateTime transactionAt = LocalDateTime.now();
+        List<Transaction> transactions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setOwner(account);
+            transaction.setReceiver(account);
+            transaction.setAmount(BigDecimal.ONE);
+            transaction.setRemark("saveAll benchmark");
+            transaction.setTransactionAt(transactionAt);
+            transaction.setStatus(true);
+            transaction.setIsDeleted(false);
+            transaction.setTransactionType(BasedTransactionType.DEPOSIT.toString());
+            transactions.add(transaction);
+        }
+
+        return transactionTemplate.execute(status -> transactionRepository.saveAll(transactions));
+    }
+
+}
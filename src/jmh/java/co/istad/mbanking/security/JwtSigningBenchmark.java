@@ -0,0 +1,96 @@
+package co.istad.mbanking.security;
+
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access-token signing and verification per algorithm (RS256 = RSA 2048, ES256 = ECDSA P-256),
+ * through the same key store, encoder and decoder chain as JwtConfig (without the decoder cache).
+ * Run with: gradle jmh -PjmhIncludes=JwtSigningBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtSigningBenchmark {
+
+    @Param({"RS256", "ES256"})
+    public JwtSigningAlgorithm algorithm;
+
+    private Path keyStoreDirectory;
+    private JwtEncoder jwtEncoder;
+    private JwtDecoder jwtDecoder;
+    private JwtEncoderParameters parameters;
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        keyStoreDirectory = Files.createTempDirectory("jwt-benchmark");
+        JwkKeyStore jwkKeyStore = new JwkKeyStore(keyStoreDirectory.resolve("jwks.json"), algorithm, 1);
+
+        jwtEncoder = new SigningJwtEncoder(new NimbusJwtEncoder(jwkKeyStore), algorithm, jwkKeyStore::getSigningKeyId);
+
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithm.getJwsAlgorithm(), jwkKeyStore));
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder nimbusJwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        nimbusJwtDecoder.setJwtValidator(JwtValidators.createDefaultWithValidators(new TokenRevocationService(7)));
+        jwtDecoder = nimbusJwtDecoder;
+
+        // Same claims as an access token issued at login
+        Instant now = Instant.now();
+        parameters = JwtEncoderParameters.from(JwtClaimsSet.builder()
+                .id("customer@gmail.com")
+                .issuedAt(now)
+                .issuer("web")
+                .audience(List.of("nextjs", "reactjs"))
+                .subject("Access Token")
+                .expiresAt(now.plus(1, ChronoUnit.DAYS))
+                .claim("scope", "ROLE_USER ROLE_CUSTOMER")
+                .build());
+        token = jwtEncoder.encode(parameters).getTokenValue();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(keyStoreDirectory.resolve("jwks.json"));
+        Files.deleteIfExists(keyStoreDirectory);
+    }
+
+    @Benchmark
+    public Jwt encode() {
+        return jwtEncoder.encode(parameters);
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return jwtDecoder.decode(token);
+    }
+
+}
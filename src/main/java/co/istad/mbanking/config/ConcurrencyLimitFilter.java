@@ -0,0 +1,110 @@
+package co.istad.mbanking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead for virtual-thread mode. Tomcat no longer caps concurrency at 200 workers,
+ * so a burst could park thousands of requests on the Hikari pool until they time out.
+ * The limit follows the pool: requests-per-connection in-flight requests per pooled connection,
+ * so only a short queue ever waits on Hikari. Requests beyond it wait briefly and are then rejected with 503.
+ * An async request (StreamingResponseBody exports) keeps its permit until the async work completes.
+ * Opt-in with mbanking.web.bulkhead.enabled.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = {"spring.threads.virtual.enabled", "mbanking.web.bulkhead.enabled"}, havingValue = "true")
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+
+    // HikariCP's own default, for a pool that is not Hikari
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    public ConcurrencyLimitFilter(DataSource dataSource,
+                                  @Value("${mbanking.web.requests-per-connection:2}") int requestsPerConnection,
+                                  @Value("${mbanking.web.acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        int poolSize = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+        int maxConcurrentRequests = poolSize * Math.max(1, requestsPerConnection);
+        log.info("In-flight request limit: {} ({} pooled connections)", maxConcurrentRequests, poolSize);
+
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            log.warn("Rejecting {} {}: too many concurrent requests", request.getMethod(), request.getRequestURI());
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, please try again");
+            return;
+        }
+
+        boolean releaseNow = true;
+        try {
+            filterChain.doFilter(request, response);
+            releaseNow = !request.isAsyncStarted();
+        } finally {
+            if (releaseNow) {
+                permits.release();
+            } else {
+                // The async dispatch is not filtered again, the listener hands the permit back
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+            }
+        }
+    }
+
+    // onTimeout and onError are always followed by onComplete
+    private class ReleaseOnComplete implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permits.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        // A restarted async cycle drops its listeners, so register again
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+    }
+
+}
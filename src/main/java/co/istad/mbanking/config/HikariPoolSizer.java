@@ -0,0 +1,41 @@
+package co.istad.mbanking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sizes the Hikari pool from HikariCP's guide, connections = (cores x 2) + effective spindles,
+ * using the cores of the machine the app runs on. The pool is fixed (minimum-idle = maximum).
+ * An explicit spring.datasource.hikari.maximum-pool-size still wins.
+ */
+@Component
+@Slf4j
+public class HikariPoolSizer implements BeanPostProcessor {
+
+    private static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+
+    private final Environment environment;
+
+    public HikariPoolSizer(Environment environment) {
+        this.environment = environment;
+    }
+
+    // Runs after spring.datasource.hikari.* is bound and before the pool starts on the first connection
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource hikari && !environment.containsProperty(MAXIMUM_POOL_SIZE)) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            int spindles = Math.max(0, environment.getProperty("mbanking.datasource.effective-spindles", Integer.class, 1));
+            int poolSize = cores * 2 + spindles;
+
+            hikari.setMaximumPoolSize(poolSize);
+            hikari.setMinimumIdle(poolSize);
+            log.info("Hikari pool size: {} ({} cores x 2 + {} spindles)", poolSize, cores, spindles);
+        }
+        return bean;
+    }
+
+}
@@ -16,7 +16,8 @@ import java.util.List;
 public class Account {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+    @SequenceGenerator(name = "accounts_seq", sequenceName = "accounts_seq", allocationSize = 50)
     private Integer id;
 
     @Column(length = 100)
@@ -30,6 +31,14 @@ public class Account {
     @Column(nullable = false)
     private BigDecimal transferLimit;
 
+    // Checked on every balance update when mbanking.transaction.concurrency-mode=optimistic
+    @Version
+    private Long version;
+
+    // Credits parked in account_balance_shards, set by BalanceShardService.loadPendingCredits for reads that report a balance
+    @Transient
+    private BigDecimal pendingCredits;
+
     @Column(nullable = false)
     private Boolean isHidden;
     @Column(nullable = false)
@@ -51,4 +60,9 @@ public class Account {
     @JoinColumn(name = "branch_id")
     private Branch branch;
 
+    // What the account holds: folded balance plus credits still parked in shards
+    public BigDecimal getAvailableBalance() {
+        return pendingCredits == null ? balance : balance.add(pendingCredits);
+    }
+
 }
@@ -0,0 +1,33 @@
+package co.istad.mbanking.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "account_balance_shards",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "shard_no"}))
+public class AccountBalanceShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id")
+    private Account account;
+
+    @Column(name = "shard_no", nullable = false)
+    private Integer shardNo;
+
+    // Credits not yet folded into Account.balance
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+}
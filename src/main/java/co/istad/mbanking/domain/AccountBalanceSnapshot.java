@@ -0,0 +1,34 @@
+package co.istad.mbanking.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "account_balance_snapshots",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "snapshot_date"}))
+public class AccountBalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id")
+    private Account account;
+
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    // Balance at the end of snapshotDate
+    @Column(nullable = false)
+    private BigDecimal closingBalance;
+
+}
@@ -0,0 +1,56 @@
+package co.istad.mbanking.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "card_issuance_jobs")
+public class CardIssuanceJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, unique = true, length = 36)
+    private String uuid;
+
+    @ManyToOne(optional = false)
+    private CardType cardType;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "requested_by")
+    private User requestedBy;
+
+    // PENDING, RUNNING, COMPLETED, FAILED
+    @Column(nullable = false, length = 10)
+    private String status;
+
+    @Column(nullable = false)
+    private Integer total;
+
+    // Cards committed so far; advanced once per chunk
+    @Column(nullable = false)
+    private Integer issued;
+
+    @Column(length = 500)
+    private String error;
+
+    // mbanking.instance-id of the application instance running the job
+    @Column(nullable = false, length = 64)
+    private String instanceId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+}
@@ -0,0 +1,23 @@
+package co.istad.mbanking.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Next unreserved sequence value per BIN; CardNumberAllocator reserves blocks from it
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "card_number_sequences")
+public class CardNumberSequence {
+
+    @Id
+    @Column(length = 6)
+    private String bin;
+
+    @Column(nullable = false)
+    private Long nextValue;
+
+}
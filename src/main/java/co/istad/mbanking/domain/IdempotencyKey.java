@@ -0,0 +1,47 @@
+package co.istad.mbanking.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "idempotency_key"}))
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Keys are scoped per user, so two clients can never collide on the same value
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    // TRANSFER or PAYMENT
+    @Column(nullable = false, length = 20)
+    private String operation;
+
+    // SHA-256 of the request body, to reject reuse of a key for a different request
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    // Stored TransactionResponse (JSON) returned to replays
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+}
@@ -0,0 +1,33 @@
+package co.istad.mbanking.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "ledger_checkpoints")
+public class LedgerCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "account_id", unique = true)
+    private Account account;
+
+    // Balance derived from the ledger as of checkpointUntil
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(name = "checkpoint_until", nullable = false)
+    private LocalDateTime checkpointUntil;
+
+}
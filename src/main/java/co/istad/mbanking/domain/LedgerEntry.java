@@ -0,0 +1,56 @@
+package co.istad.mbanking.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One side of a double-entry posting. Every transaction writes exactly one DEBIT and one CREDIT
+ * of the same amount; rows are append-only and never updated.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "ledger_entries", indexes = {
+        @Index(name = "idx_ledger_entries_account", columnList = "account_id, entry_at"),
+        @Index(name = "idx_ledger_entries_transaction", columnList = "transaction_id"),
+        @Index(name = "idx_ledger_entries_entry_at", columnList = "entry_at")
+})
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "transaction_id")
+    private Transaction transaction;
+
+    // Null when this side is outside the bank (cash, external payee)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id")
+    private Account account;
+
+    // CASH for deposits/withdrawals, the payee for external payments
+    @Column(length = 100)
+    private String counterparty;
+
+    // DEBIT or CREDIT
+    @Column(nullable = false, length = 6)
+    private String side;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "entry_at", nullable = false)
+    private LocalDateTime entryAt;
+
+}
@@ -12,11 +12,15 @@ import java.time.LocalDateTime;
 @Setter
 @NoArgsConstructor
 @Entity
+// Partial history indexes on (owner_id | receiver_id, transaction_at DESC, id DESC) live in import.sql,
+// JPA @Index cannot express the is_deleted = false predicate
 @Table(name = "transactions")
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // SERIAL
+    // Pooled sequence instead of IDENTITY (SERIAL) so Hibernate can batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Integer id;
 
     @ManyToOne
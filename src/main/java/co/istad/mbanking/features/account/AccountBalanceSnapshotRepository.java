@@ -0,0 +1,30 @@
+package co.istad.mbanking.features.account;
+
+import co.istad.mbanking.domain.AccountBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface AccountBalanceSnapshotRepository extends JpaRepository<AccountBalanceSnapshot, Integer> {
+
+    // Latest snapshot taken on or before the given day
+    Optional<AccountBalanceSnapshot> findFirstByAccountIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(
+            Integer accountId, LocalDate snapshotDate);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO account_balance_snapshots (account_id, snapshot_date, closing_balance)
+            VALUES (:accountId, :snapshotDate, :closingBalance)
+            ON CONFLICT (account_id, snapshot_date)
+            DO UPDATE SET closing_balance = EXCLUDED.closing_balance
+            """, nativeQuery = true)
+    int upsert(@Param("accountId") Integer accountId,
+               @Param("snapshotDate") LocalDate snapshotDate,
+               @Param("closingBalance") BigDecimal closingBalance);
+
+}
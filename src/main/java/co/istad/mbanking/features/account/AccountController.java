@@ -6,11 +6,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -133,6 +135,24 @@ public class AccountController {
         return ResponseEntity.ok(apiResponse);
     }
 
+    @PreAuthorize("hasAnyAuthority('ROLE_CUSTOMER', 'ROLE_STAFF', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    @GetMapping("/{actNo}/statement")
+    public ResponseEntity<ApiResponse<AccountStatementResponse>> getStatement(
+            @PathVariable String actNo,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        AccountStatementResponse response = accountService.getStatement(actNo, from, to);
+
+        ApiResponse<AccountStatementResponse> apiResponse = ApiResponse.<AccountStatementResponse>builder()
+                .success(true)
+                .message("Account statement retrieved successfully")
+                .status(HttpStatus.OK)
+                .payload(response)
+                .build();
+
+        return ResponseEntity.ok(apiResponse);
+    }
+
 //    @PreAuthorize("hasAnyAuthority('ROLE_CUSTOMER', 'ROLE_STAFF', 'ROLE_MANAGER', 'ROLE_ADMIN')")
 //    @ResponseStatus(HttpStatus.CREATED)
 //    @PostMapping("/{actNo}/deposit")
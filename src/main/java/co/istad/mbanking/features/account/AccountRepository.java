@@ -1,9 +1,15 @@
 package co.istad.mbanking.features.account;
 
 import co.istad.mbanking.domain.Account;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,5 +20,16 @@ public interface AccountRepository extends JpaRepository<Account, Integer> {
     // SELECT EXIST(SELECT * FROM accounts WHERE act_no = ?)
     Boolean existsByActNo(String actNo);
 
-}
+    // Resolve the id only, so the entity is first loaded by the locking query below
+    @Query("SELECT a.id FROM Account a WHERE a.actNo = :actNo")
+    Optional<Integer> findIdByActNo(@Param("actNo") String actNo);
+
+    // SELECT * FROM accounts WHERE id IN (?) ORDER BY id FOR UPDATE
+    // Rows are locked in ascending id order, so concurrent callers always lock in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Integer> ids);
 
+    List<Account> findAllByActNoIn(Collection<String> actNos);
+
+}
@@ -4,6 +4,7 @@ import co.istad.mbanking.features.account.dto.*;
 import org.springframework.data.domain.Page;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface AccountService {
@@ -23,6 +24,9 @@ public interface AccountService {
 
     AccountDetailResponse findByActNo(String actNo);
 
+    // Opening and closing balance of an account for the inclusive date range [from, to]
+    AccountStatementResponse getStatement(String actNo, LocalDate from, LocalDate to);
+
 //    AccountDetailResponse deposit(String actNo, DepositRequest depositRequest);
 //
 //    AccountDetailResponse withdraw(String actNo, WithdrawRequest withdrawRequest);
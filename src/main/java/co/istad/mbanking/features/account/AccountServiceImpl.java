@@ -5,10 +5,15 @@ import co.istad.mbanking.domain.AccountType;
 import co.istad.mbanking.domain.User;
 import co.istad.mbanking.domain.UserAccount;
 import co.istad.mbanking.features.account.dto.*;
+import co.istad.mbanking.features.reference.ReferenceDataCache;
+import co.istad.mbanking.features.transaction.BalanceShardService;
+import co.istad.mbanking.features.transaction.TransactionRepository;
+import co.istad.mbanking.features.transaction.dto.AccountFlowRow;
 import co.istad.mbanking.features.user.UserRepository;
 import co.istad.mbanking.mapper.AccountMapper;
 import co.istad.mbanking.security.CurrentUserUtil;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -17,20 +22,25 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AccountServiceImpl implements AccountService {
 
     private final UserRepository userRepository;
     private final UserAccountRepository userAccountRepository;
     private final AccountRepository accountRepository;
-    private final AccountTypeRepository accountTypeRepository;
     private final AccountMapper accountMapper;
     private final CurrentUserUtil currentUserUtil;
+    private final TransactionRepository transactionRepository;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final ReferenceDataCache referenceDataCache;
+    private final BalanceShardService balanceShardService;
 
 
     @Override
@@ -44,6 +54,7 @@ public class AccountServiceImpl implements AccountService {
 
         account.setTransferLimit(accountTransferLimitRequest.amount());
         accountRepository.save(account);
+        balanceShardService.loadPendingCredits(account);
 
         return accountMapper.toAccountDetailResponse(account);
 //        return accountMapper.toAccountDetailResponse(accountRepository.save(account));
@@ -62,6 +73,7 @@ public class AccountServiceImpl implements AccountService {
 
         account.setIsDeleted(false);
         accountRepository.save(account);
+        balanceShardService.loadPendingCredits(account);
         return accountMapper.toAccountDetailResponse(account);
     }
 
@@ -78,6 +90,7 @@ public class AccountServiceImpl implements AccountService {
 
         account.setIsDeleted(true);
         accountRepository.save(account);
+        balanceShardService.loadPendingCredits(account);
 
         return accountMapper.toAccountDetailResponse(account);
     }
@@ -115,6 +128,7 @@ public class AccountServiceImpl implements AccountService {
         PageRequest pageRequest = PageRequest.of(pageNo - 1, pageSize, sortById);
 
         Page<Account> accountsByPage = accountRepository.findAll(pageRequest);
+        balanceShardService.loadPendingCredits(accountsByPage.getContent());
 
         return accountsByPage.map(accountMapper::toAccountDetailResponse);
     }
@@ -133,6 +147,7 @@ public class AccountServiceImpl implements AccountService {
         accountMapper.fromUpdateAccountRequestPartially(updateAccountRequest, account);
 
         account = accountRepository.save(account);
+        balanceShardService.loadPendingCredits(account);
 
         return accountMapper.toAccountDetailResponse(account);
     }
@@ -147,10 +162,45 @@ public class AccountServiceImpl implements AccountService {
                         HttpStatus.NOT_FOUND,
                         "Account doesn't exist"
                 ));
+        balanceShardService.loadPendingCredits(account);
 
         return accountMapper.toAccountDetailResponse(account);
     }
 
+    @Override
+    public AccountStatementResponse getStatement(String actNo, LocalDate from, LocalDate to) {
+
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Start date must not be after end date");
+        }
+
+        // Staff read any statement; a customer only their own, and someone else's account reads as missing
+        Integer accountId = (currentUserUtil.hasAnyRole("ROLE_STAFF", "ROLE_MANAGER", "ROLE_ADMIN")
+                ? accountRepository.findIdByActNo(actNo)
+                : userAccountRepository.findAccountIdByActNoAndUserUuid(actNo, currentUserUtil.getCurrentUserUuid()))
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        "Account doesn't exist"
+                ));
+
+        // One snapshot row plus the transactions after it, then the flow inside the range
+        LocalDateTime fromAt = from.atStartOfDay();
+        LocalDateTime toAt = to.plusDays(1).atStartOfDay();
+        BigDecimal openingBalance = balanceSnapshotService.balanceAt(accountId, fromAt);
+        AccountFlowRow flow = transactionRepository.sumAccountFlow(accountId, fromAt, toAt);
+
+        return AccountStatementResponse.builder()
+                .actNo(actNo)
+                .from(from)
+                .to(to)
+                .openingBalance(openingBalance)
+                .totalCredit(flow.getCredit())
+                .totalDebit(flow.getDebit())
+                .closingBalance(openingBalance.add(flow.getCredit()).subtract(flow.getDebit()))
+                .build();
+    }
+
 //    @Override
 //    public AccountDetailResponse deposit(String actNo, DepositRequest depositRequest) {
 //        Account account = accountRepository
@@ -192,8 +242,8 @@ public class AccountServiceImpl implements AccountService {
     public AccountDetailResponse createNew(CreateAccountRequest createAccountRequest) {
 
         // Validate account type
-        AccountType accountType = accountTypeRepository
-                .findByAlias(createAccountRequest.accountTypeAlias())
+        AccountType accountType = referenceDataCache
+                .findAccountTypeByAlias(createAccountRequest.accountTypeAlias())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Account type not found"
                 ));
@@ -241,6 +291,7 @@ public class AccountServiceImpl implements AccountService {
 
         account.setAliasName(accountRenameRequest.aliasName());
         account = accountRepository.save(account);
+        balanceShardService.loadPendingCredits(account);
 
         return accountMapper.toAccountDetailResponse(account);
     }
@@ -248,26 +299,25 @@ public class AccountServiceImpl implements AccountService {
     @Override
     public List<AccountDetailResponse> findCurrentUserAccounts() {
         String currentUserUuid = currentUserUtil.getCurrentUserUuid();
-        System.out.println("Current user UUID: " + currentUserUuid);
 
         // Use the query that checks both UserAccount.isDeleted and Account.isDeleted
         List<Account> accounts = userAccountRepository.findActiveAccountsByUserUuid(currentUserUuid);
-        System.out.println("Found accounts: " + accounts.size());
 
         // If no accounts found for the current user, get a demo account for display
         if (accounts.isEmpty()) {
-            System.out.println("No accounts found for current user, retrieving demo account");
             // Get the first account in the system as a demo
             // This is just for demonstration purposes - in a real app, you'd handle this differently
             Page<Account> demoAccounts = accountRepository.findAll(PageRequest.of(0, 1));
             if (!demoAccounts.isEmpty()) {
                 accounts = demoAccounts.getContent();
-                System.out.println("Using demo account: " + accounts.get(0).getActNo());
+                log.debug("No accounts found for user {}, using demo account {}",
+                        currentUserUuid, accounts.get(0).getActNo());
             }
         }
 
+        balanceShardService.loadPendingCredits(accounts);
+
         return accounts.stream()
-                .peek(account -> System.out.println("Processing account: " + account.getActNo()))
                 .map(accountMapper::toAccountDetailResponse)
                 .collect(Collectors.toList());
     }
@@ -6,6 +6,7 @@ import co.istad.mbanking.domain.User;
 import co.istad.mbanking.features.account.dto.AccountTypeRequest;
 import co.istad.mbanking.features.account.dto.AccountTypeResponse;
 import co.istad.mbanking.features.account.dto.AccountTypeUpdateRequest;
+import co.istad.mbanking.features.reference.ReferenceDataCache;
 import co.istad.mbanking.mapper.AccountTypeMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,18 +25,19 @@ public class AccountTypeServiceImpl implements AccountTypeService {
     private final AccountTypeRepository accountTypeRepository;
     private final AccountTypeMapper accountTypeMapper;
     private final UserAccountRepository userAccountRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public List<AccountTypeResponse> findAll() {
 
-        List<AccountType> accountTypes = accountTypeRepository.findAll();
+        List<AccountType> accountTypes = referenceDataCache.findAllAccountTypes();
 
         return accountTypeMapper.toAccountTypeResponseList(accountTypes);
     }
 
     @Override
     public AccountTypeResponse findByAlias(String alias) {
-        AccountType accountType = accountTypeRepository.findByAlias(alias)
+        AccountType accountType = referenceDataCache.findAccountTypeByAlias(alias)
                 .orElseThrow(() ->
                         new ResponseStatusException(HttpStatus.NOT_FOUND,
                                 "Account type has not been found!"));
@@ -56,6 +58,7 @@ public class AccountTypeServiceImpl implements AccountTypeService {
         accountType.setIsDeleted(false);
 
         accountTypeRepository.save(accountType);
+        referenceDataCache.refresh();
 
         return accountTypeMapper.toAccountTypeResponse(accountType);
     }
@@ -74,6 +77,7 @@ public class AccountTypeServiceImpl implements AccountTypeService {
         log.info("After map: {}, {}, {}", accountType.getId(), accountType.getDescription(), accountType.getIsDeleted());
 
         accountType = accountTypeRepository.save(accountType);
+        referenceDataCache.refresh();
 
         return accountTypeMapper.toAccountTypeResponse(accountType);
     }
@@ -88,6 +92,7 @@ public class AccountTypeServiceImpl implements AccountTypeService {
                         "Account type alias has not been found"));
 
         accountTypeRepository.delete(accountType);
+        referenceDataCache.refresh();
 
         return accountTypeMapper.toAccountTypeResponse(accountType);
     }
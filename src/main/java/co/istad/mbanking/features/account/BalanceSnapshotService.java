@@ -0,0 +1,109 @@
+package co.istad.mbanking.features.account;
+
+import co.istad.mbanking.domain.Account;
+import co.istad.mbanking.domain.AccountBalanceSnapshot;
+import co.istad.mbanking.features.transaction.BalanceShardService;
+import co.istad.mbanking.features.transaction.TransactionRepository;
+import co.istad.mbanking.features.transaction.dto.AccountFlowRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Daily closing-balance snapshots per account, so a balance as of any past moment is
+ * one snapshot row plus the transactions after it, instead of a replay of the whole history.
+ */
+@Service
+@Slf4j
+public class BalanceSnapshotService {
+
+    private final AccountRepository accountRepository;
+    private final AccountBalanceSnapshotRepository accountBalanceSnapshotRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceShardService balanceShardService;
+    private final TransactionTemplate repeatableReadTemplate;
+
+    public BalanceSnapshotService(AccountRepository accountRepository,
+                                  AccountBalanceSnapshotRepository accountBalanceSnapshotRepository,
+                                  TransactionRepository transactionRepository,
+                                  BalanceShardService balanceShardService,
+                                  PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.accountBalanceSnapshotRepository = accountBalanceSnapshotRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceShardService = balanceShardService;
+
+        // Balance and transaction reads must come from the same database snapshot
+        this.repeatableReadTemplate = new TransactionTemplate(transactionManager);
+        this.repeatableReadTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Snapshot yesterday's closing balance of every account that had a transaction yesterday.
+     * Accounts without activity keep using their last snapshot, which is still their closing balance.
+     */
+    @Scheduled(cron = "${mbanking.account.snapshot.cron:0 5 0 * * *}")
+    public void snapshotYesterday() {
+        snapshotDay(LocalDate.now().minusDays(1));
+    }
+
+    public void snapshotDay(LocalDate day) {
+        List<Integer> accountIds = transactionRepository.findActiveAccountIds(
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+
+        for (Integer accountId : accountIds) {
+            try {
+                repeatableReadTemplate.executeWithoutResult(status -> {
+                    BigDecimal closingBalance = balanceAt(accountId, day.plusDays(1).atStartOfDay());
+                    accountBalanceSnapshotRepository.upsert(accountId, day, closingBalance);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Failed to snapshot balance of account {} for {}: {}", accountId, day, e.getMessage());
+            }
+        }
+
+        log.info("Snapshotted {} account balances for {}", accountIds.size(), day);
+    }
+
+    /**
+     * Balance of an account at the given moment: the latest snapshot before it plus the
+     * transactions since that snapshot. Without a snapshot, walk back from the current balance.
+     */
+    public BigDecimal balanceAt(Integer accountId, LocalDateTime at) {
+        Optional<AccountBalanceSnapshot> snapshot = accountBalanceSnapshotRepository
+                .findFirstByAccountIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(
+                        accountId, at.toLocalDate().minusDays(1));
+
+        if (snapshot.isPresent()) {
+            LocalDateTime snapshotEnd = snapshot.get().getSnapshotDate().plusDays(1).atStartOfDay();
+            return snapshot.get().getClosingBalance().add(netFlow(accountId, snapshotEnd, at));
+        }
+
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account doesn't exist"));
+
+        balanceShardService.loadPendingCredits(account);
+
+        return account.getAvailableBalance().subtract(netFlow(accountId, at, LocalDateTime.now().plusDays(1)));
+    }
+
+    private BigDecimal netFlow(Integer accountId, LocalDateTime fromAt, LocalDateTime toAt) {
+        if (!fromAt.isBefore(toAt)) {
+            return BigDecimal.ZERO;
+        }
+        AccountFlowRow flow = transactionRepository.sumAccountFlow(accountId, fromAt, toAt);
+        return flow.getCredit().subtract(flow.getDebit());
+    }
+
+}
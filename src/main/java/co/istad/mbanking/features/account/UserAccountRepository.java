@@ -6,7 +6,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface UserAccountRepository extends JpaRepository<UserAccount, Integer> {
     @Query("SELECT ua.account FROM UserAccount ua WHERE ua.user.uuid = :userUuid AND ua.isDeleted = false")
@@ -14,4 +16,14 @@ public interface UserAccountRepository extends JpaRepository<UserAccount, Intege
 
     @Query("SELECT ua.account FROM UserAccount ua WHERE ua.user.uuid = :userUuid AND ua.isDeleted = false AND ua.account.isDeleted = false")
     List<Account> findActiveAccountsByUserUuid(@Param("userUuid") String userUuid);
+
+    // Active accounts of many users in one query, for joining onto card listings in memory
+    @Query("SELECT ua FROM UserAccount ua JOIN FETCH ua.account a " +
+           "WHERE ua.user.id IN :userIds AND ua.isDeleted = false AND a.isDeleted = false")
+    List<UserAccount> findActiveByUserIdIn(@Param("userIds") Collection<Integer> userIds);
+
+    // Id of the account only when the given user holds it
+    @Query("SELECT ua.account.id FROM UserAccount ua " +
+           "WHERE ua.account.actNo = :actNo AND ua.user.uuid = :userUuid AND ua.isDeleted = false")
+    Optional<Integer> findAccountIdByActNoAndUserUuid(@Param("actNo") String actNo, @Param("userUuid") String userUuid);
 }
@@ -0,0 +1,18 @@
+package co.istad.mbanking.features.account.dto;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Builder
+public record AccountStatementResponse(
+        String actNo,
+        LocalDate from,
+        LocalDate to,
+        BigDecimal openingBalance,
+        BigDecimal totalCredit,
+        BigDecimal totalDebit,
+        BigDecimal closingBalance
+) {
+}
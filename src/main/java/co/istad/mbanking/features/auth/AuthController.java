@@ -5,12 +5,13 @@ import co.istad.mbanking.features.auth.dto.*;
 import co.istad.mbanking.features.user.dto.CreateUserRequest;
 import co.istad.mbanking.security.CurrentUserUtil;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.mail.MessagingException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -44,8 +45,9 @@ public class AuthController {
      * Login a user and get authentication tokens
      */
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<JwtResponse>> login(@RequestBody @Valid LoginRequest loginRequest) {
-        JwtResponse jwt = authService.login(loginRequest);
+    public ResponseEntity<ApiResponse<JwtResponse>> login(@RequestBody @Valid LoginRequest loginRequest,
+                                                          HttpServletRequest request) {
+        JwtResponse jwt = authService.login(loginRequest, request.getRemoteAddr());
         ApiResponse<JwtResponse> response = ApiResponse.<JwtResponse>builder()
                 .success(true)
                 .message("Login successful")
@@ -73,7 +75,7 @@ public class AuthController {
      * Resend verification code to user's email
      */
     @PostMapping("/resend-verify")
-    public ResponseEntity<ApiResponse<Void>> resendVerification(@Valid @RequestBody ReVerifyRequest reVerifyRequest) throws MessagingException {
+    public ResponseEntity<ApiResponse<Void>> resendVerification(@Valid @RequestBody ReVerifyRequest reVerifyRequest) {
         authService.resendVerification(reVerifyRequest.email());
         ApiResponse<Void> response = ApiResponse.<Void>builder()
                 .success(true)
@@ -87,7 +89,7 @@ public class AuthController {
      * Register a new user account
      */
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<Void>> register(@Valid @RequestBody RegisterRequest registerRequest) throws MessagingException {
+    public ResponseEntity<ApiResponse<Void>> register(@Valid @RequestBody RegisterRequest registerRequest) {
         authService.register(registerRequest);
         ApiResponse<Void> response = ApiResponse.<Void>builder()
                 .success(true)
@@ -96,4 +98,19 @@ public class AuthController {
                 .build();
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
+
+    /**
+     * Logout: revoke every token issued to the current user
+     */
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(Authentication authentication) {
+        authService.logout(authentication);
+        ApiResponse<Void> response = ApiResponse.<Void>builder()
+                .success(true)
+                .message("Logged out successfully")
+                .status(HttpStatus.OK)
+                .build();
+        return ResponseEntity.ok(response);
+    }
 }
@@ -1,18 +1,20 @@
 package co.istad.mbanking.features.auth;
 
 import co.istad.mbanking.features.auth.dto.*;
-import jakarta.mail.MessagingException;
+import org.springframework.security.core.Authentication;
 
 public interface AuthService {
 
     JwtResponse refreshToken(RefreshTokenRequest refreshTokenRequest);
 
-    JwtResponse login(LoginRequest loginRequest);
+    JwtResponse login(LoginRequest loginRequest, String clientIp);
 
     void verify(VerifyRequest verifyRequest);
 
-    void resendVerification(String email) throws MessagingException;
+    void resendVerification(String email);
 
-    void register(RegisterRequest registerRequest) throws MessagingException;
+    void register(RegisterRequest registerRequest);
+
+    void logout(Authentication authentication);
 
 }
@@ -4,20 +4,19 @@ import co.istad.mbanking.domain.EmailVerification;
 import co.istad.mbanking.domain.Role;
 import co.istad.mbanking.domain.User;
 import co.istad.mbanking.features.auth.dto.*;
+import co.istad.mbanking.features.mail.MailService;
+import co.istad.mbanking.features.reference.ReferenceDataCache;
 import co.istad.mbanking.features.user.UserRepository;
 import co.istad.mbanking.mapper.UserMapper;
-import co.istad.mbanking.security.CustomUserDetails;
+import co.istad.mbanking.security.PrincipalCache;
+import co.istad.mbanking.security.TokenRevocationService;
 import co.istad.mbanking.util.RandomUtil;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.Authentication;
@@ -30,6 +29,7 @@ import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
 import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Duration;
@@ -48,15 +48,15 @@ import java.util.stream.Collectors;
 public class AuthServiceImpl implements AuthService {
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final PrincipalCache principalCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final ReferenceDataCache referenceDataCache;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
 
     private final EmailVerificationRepository emailVerificationRepository;
-    private final JavaMailSender javaMailSender;
-
-    @Value("${spring.mail.username}")
-    private String adminMail;
+    private final MailService mailService;
+    private final LoginThrottle loginThrottle;
 
     private final String TOKEN_TYPE = "Bearer";
 
@@ -87,10 +87,10 @@ public class AuthServiceImpl implements AuthService {
         log.info("New Scope: {}", scope);
         log.info("Auth: {}", auth);
 
-        Instant now = Instant.now();
-
         Jwt jwt = (Jwt) auth.getPrincipal();
 
+        Instant now = tokenRevocationService.issuedAt(jwt.getId());
+
         // Create access token claims set
         JwtClaimsSet jwtClaimsSet = JwtClaimsSet.builder()
                 .id(jwt.getId())
@@ -132,17 +132,26 @@ public class AuthServiceImpl implements AuthService {
 
 
     @Override
-    public JwtResponse login(LoginRequest loginRequest) {
+    public JwtResponse login(LoginRequest loginRequest, String clientIp) {
+
+        loginThrottle.acquire(loginRequest.email(), clientIp);
 
         Authentication auth = new UsernamePasswordAuthenticationToken(
                 loginRequest.email(),
                 loginRequest.password()
         );
 
-        auth = daoAuthenticationProvider.authenticate(auth);
+        // An unknown email is checked against a dummy hash by the provider, so it costs the same bcrypt work
+        try {
+            auth = daoAuthenticationProvider.authenticate(auth);
+        } catch (BadCredentialsException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid email or password");
+        }
+        loginThrottle.reset(loginRequest.email(), clientIp);
 
-        CustomUserDetails customUserDetails = (CustomUserDetails) auth.getPrincipal();
-        User user = customUserDetails.getUser();
+        // The authenticated principal is a cached snapshot, so the profile returned below is read from the user row
+        User user = userRepository.findByEmail(auth.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid email or password"));
 
         // Prepare SCOPE
         log.info("Authorities: {}", auth.getAuthorities());
@@ -153,7 +162,7 @@ public class AuthServiceImpl implements AuthService {
                 .collect(Collectors.joining(" "));
         log.info("SCOPE: {}", scope);
 
-        Instant now = Instant.now();
+        Instant now = tokenRevocationService.issuedAt(auth.getName());
 
         // Create access token claims set
         JwtClaimsSet jwtClaimsSet = JwtClaimsSet.builder()
@@ -238,10 +247,12 @@ public class AuthServiceImpl implements AuthService {
         user.setIsVerified(true);
         user.setIsDeleted(false);
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
     }
 
+    @Transactional
     @Override
-    public void resendVerification(String email) throws MessagingException {
+    public void resendVerification(String email) {
         // Validate email
         User user = userRepository
                 .findByEmail(email)
@@ -256,7 +267,7 @@ public class AuthServiceImpl implements AuthService {
         emailVerification.setExpiryTime(LocalDateTime.now().plusMinutes(5));
         emailVerificationRepository.save(emailVerification);
 
-        // Step 2. Prepare to send mail
+        // Step 2. Queue the mail; it is delivered from the outbox after commit
 
         String myHtml = String.format("""
                 <h1>MBanking - Email Verification</h1>
@@ -264,19 +275,13 @@ public class AuthServiceImpl implements AuthService {
                 %s
                 """, emailVerification.getVerificationCode());
 
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage);
-        helper.setSubject("Email Verification - MBanking");
-        helper.setTo(user.getEmail());
-        helper.setFrom(adminMail);
-        helper.setText(myHtml, true);
-
-        javaMailSender.send(mimeMessage);
+        mailService.enqueue(user.getEmail(), "Email Verification - MBanking", myHtml, true);
     }
 
 
+    @Transactional
     @Override
-    public void register(RegisterRequest registerRequest) throws MessagingException {
+    public void register(RegisterRequest registerRequest) {
 
         // Validate national Card ID
         if (userRepository.isNationalCardIdExisted(registerRequest.nationalCardId())) {
@@ -316,8 +321,8 @@ public class AuthServiceImpl implements AuthService {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
 
         List<Role> roles = new ArrayList<>();
-        roles.add(roleRepository.findById(1).orElseThrow());
-        roles.add(roleRepository.findById(2).orElseThrow());
+        roles.add(referenceDataCache.findRoleById(1).orElseThrow());
+        roles.add(referenceDataCache.findRoleById(2).orElseThrow());
         user.setRoles(roles);
 
         user = userRepository.save(user);
@@ -332,7 +337,7 @@ public class AuthServiceImpl implements AuthService {
 
         emailVerificationRepository.save(emailVerification);
 
-        // Step 2. Prepare to send mail
+        // Step 2. Queue the mail; it is delivered from the outbox after commit
 
         String myHtml = String.format("""
                 <h1>MBanking - Email Verification</h1>
@@ -340,14 +345,15 @@ public class AuthServiceImpl implements AuthService {
                 %s
                 """, emailVerification.getVerificationCode());
 
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage);
-        helper.setSubject("Email Verification - MBanking");
-        helper.setTo(user.getEmail());
-        helper.setFrom(adminMail);
-        helper.setText(myHtml, true);
+        mailService.enqueue(user.getEmail(), "Email Verification - MBanking", myHtml, true);
+    }
 
-        javaMailSender.send(mimeMessage);
+    @Override
+    public void logout(Authentication authentication) {
+        // Both the access and the refresh tokens of the user stop working
+        Jwt jwt = (Jwt) authentication.getPrincipal();
+        tokenRevocationService.revokeAll(jwt.getId());
+        principalCache.evict(jwt.getId());
     }
 
 }
@@ -0,0 +1,100 @@
+package co.istad.mbanking.features.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory login throttling: one token bucket per (email, client IP) pair and one per client IP.
+ * Keying the email bucket on the IP as well means guessing from one address cannot lock the owner
+ * out of the account from theirs; the IP bucket still bounds guesses across many emails.
+ */
+@Component
+public class LoginThrottle {
+
+    // Keyed by normalized email + '|' + client IP
+    private final Cache<String, Bucket> emailBuckets;
+    private final Cache<String, Bucket> ipBuckets;
+
+    private final int emailCapacity;
+    private final double emailRefillPerNano;
+    private final int ipCapacity;
+    private final double ipRefillPerNano;
+
+    public LoginThrottle(@Value("${mbanking.security.login-throttle.email.capacity:5}") int emailCapacity,
+                         @Value("${mbanking.security.login-throttle.email.refill-per-minute:1}") int emailRefillPerMinute,
+                         @Value("${mbanking.security.login-throttle.ip.capacity:20}") int ipCapacity,
+                         @Value("${mbanking.security.login-throttle.ip.refill-per-minute:10}") int ipRefillPerMinute,
+                         @Value("${mbanking.security.login-throttle.maximum-size:100000}") long maximumSize) {
+        this.emailCapacity = emailCapacity;
+        this.emailRefillPerNano = emailRefillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.ipCapacity = ipCapacity;
+        this.ipRefillPerNano = ipRefillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+
+        // An idle bucket is full again after at most an hour, so dropping it then loses nothing
+        this.emailBuckets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+        this.ipBuckets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    // Take one attempt from both buckets, or reject with 429
+    public void acquire(String email, String clientIp) {
+        long now = System.nanoTime();
+        boolean ipAllowed = tryConsume(ipBuckets, clientIp, ipCapacity, ipRefillPerNano, now);
+        boolean emailAllowed = tryConsume(emailBuckets, emailKey(email, clientIp), emailCapacity, emailRefillPerNano, now);
+
+        if (!ipAllowed || !emailAllowed) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Too many login attempts, please try again later");
+        }
+    }
+
+    // A successful login gives the account its full allowance back at that IP
+    public void reset(String email, String clientIp) {
+        String key = emailKey(email, clientIp);
+        if (key != null) {
+            emailBuckets.invalidate(key);
+        }
+    }
+
+    private static boolean tryConsume(Cache<String, Bucket> buckets, String key, int capacity,
+                                      double refillPerNano, long now) {
+        if (key == null) {
+            return true;
+        }
+        Bucket bucket = buckets.asMap().compute(key, (k, current) -> (current == null
+                ? new Bucket(capacity, now, false)
+                : current.refill(capacity, refillPerNano, now)).take());
+        return bucket.allowed();
+    }
+
+    private static String emailKey(String email, String clientIp) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT) + "|" + clientIp;
+    }
+
+    private record Bucket(double tokens, long refilledAt, boolean allowed) {
+
+        Bucket refill(int capacity, double refillPerNano, long now) {
+            return new Bucket(Math.min(capacity, tokens + (now - refilledAt) * refillPerNano), now, allowed);
+        }
+
+        Bucket take() {
+            return tokens >= 1
+                    ? new Bucket(tokens - 1, refilledAt, true)
+                    : new Bucket(tokens, refilledAt, false);
+        }
+    }
+
+}
@@ -1,15 +1,21 @@
 package co.istad.mbanking.features.card;
 
 import co.istad.mbanking.exception.ApiResponse;
+import co.istad.mbanking.features.card.dto.BulkCardIssuanceRequest;
+import co.istad.mbanking.features.card.dto.CardIssuanceJobResponse;
 import co.istad.mbanking.features.card.dto.CardRequest;
 import co.istad.mbanking.features.card.dto.CardResponse;
+import co.istad.mbanking.features.card.dto.CardSearchRequest;
+import co.istad.mbanking.features.card.dto.CardSearchResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,6 +24,7 @@ import java.util.List;
 public class CardController {
 
     private final CardService cardService;
+    private final CardIssuanceService cardIssuanceService;
 
     @PreAuthorize("hasAnyAuthority('ROLE_USER','ROLE_CUSTOMER')")
     @PostMapping
@@ -34,6 +41,37 @@ public class CardController {
         return ResponseEntity.status(HttpStatus.CREATED).body(apiResponse);
     }
 
+    @PreAuthorize("hasAnyAuthority('ROLE_MANAGER','ROLE_ADMIN')")
+    @PostMapping("/bulk-issuances")
+    public ResponseEntity<ApiResponse<CardIssuanceJobResponse>> issueCards(
+            @Valid @RequestBody BulkCardIssuanceRequest bulkCardIssuanceRequest) {
+        CardIssuanceJobResponse response = cardIssuanceService.submit(bulkCardIssuanceRequest);
+
+        ApiResponse<CardIssuanceJobResponse> apiResponse = ApiResponse.<CardIssuanceJobResponse>builder()
+                .success(true)
+                .message("Card issuance job accepted")
+                .status(HttpStatus.ACCEPTED)
+                .payload(response)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(apiResponse);
+    }
+
+    @PreAuthorize("hasAnyAuthority('ROLE_MANAGER','ROLE_ADMIN')")
+    @GetMapping("/bulk-issuances/{uuid}")
+    public ResponseEntity<ApiResponse<CardIssuanceJobResponse>> getCardIssuanceJob(@PathVariable String uuid) {
+        CardIssuanceJobResponse response = cardIssuanceService.findByUuid(uuid);
+
+        ApiResponse<CardIssuanceJobResponse> apiResponse = ApiResponse.<CardIssuanceJobResponse>builder()
+                .success(true)
+                .message("Card issuance job retrieved successfully")
+                .status(HttpStatus.OK)
+                .payload(response)
+                .build();
+
+        return ResponseEntity.ok(apiResponse);
+    }
+
     @PreAuthorize("hasAnyAuthority('ROLE_USER','ROLE_CUSTOMER')")
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<CardResponse>> updateCard(@PathVariable Integer id,
@@ -186,6 +224,31 @@ public class CardController {
         return ResponseEntity.ok(apiResponse);
     }
 
+    @PreAuthorize("hasAnyAuthority('ROLE_STAFF','ROLE_MANAGER','ROLE_ADMIN')")
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<CardSearchResponse>> searchCards(
+            @RequestParam(required = false) Integer cardTypeId,
+            @RequestParam(required = false) Boolean frozen,
+            @RequestParam(required = false) Boolean deleted,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiredFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiredTo,
+            @RequestParam(required = false) String holder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        CardSearchResponse response = cardService.searchCards(
+                new CardSearchRequest(cardTypeId, frozen, deleted, expiredFrom, expiredTo, holder), cursor, limit);
+
+        ApiResponse<CardSearchResponse> apiResponse = ApiResponse.<CardSearchResponse>builder()
+                .success(true)
+                .message("Cards retrieved successfully")
+                .status(HttpStatus.OK)
+                .payload(response)
+                .build();
+
+        return ResponseEntity.ok(apiResponse);
+    }
+
     @PreAuthorize("hasAnyAuthority('ROLE_USER','ROLE_CUSTOMER','ROLE_STAFF','ROLE_MANAGER','ROLE_ADMIN')")
     @PutMapping("/{id}/freeze")
     public ResponseEntity<ApiResponse<CardResponse>> freezeCard(@PathVariable Integer id) {
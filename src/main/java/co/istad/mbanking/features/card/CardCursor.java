@@ -0,0 +1,35 @@
+package co.istad.mbanking.features.card;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for card search, pointing at the last card id returned.
+ * The next page is every matching card with a smaller id, in id DESC order.
+ */
+record CardCursor(Integer id) {
+
+    // Position before the newest possible card, used when no cursor is given
+    private static final CardCursor START = new CardCursor(Integer.MAX_VALUE);
+
+    static CardCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return new CardCursor(Integer.valueOf(decoded));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,45 @@
+package co.istad.mbanking.features.card;
+
+import co.istad.mbanking.domain.CardIssuanceJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CardIssuanceJobRepository extends JpaRepository<CardIssuanceJob, Integer> {
+
+    Optional<CardIssuanceJob> findByUuid(String uuid);
+
+    // Each transition is guarded by the status it starts from and returns 0 when the job has moved on
+
+    // Committed together with the chunk of cards it counts
+    @Modifying
+    @Query("UPDATE CardIssuanceJob j SET j.issued = j.issued + :count WHERE j.id = :id AND j.status = 'RUNNING'")
+    int addIssued(@Param("id") Integer id, @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE CardIssuanceJob j SET j.status = 'RUNNING', j.startedAt = :at WHERE j.id = :id AND j.status = 'PENDING'")
+    int markRunning(@Param("id") Integer id, @Param("at") LocalDateTime at);
+
+    // COMPLETED or FAILED
+    @Modifying
+    @Query("UPDATE CardIssuanceJob j SET j.status = :status, j.error = :error, j.completedAt = :at " +
+            "WHERE j.id = :id AND j.status IN ('PENDING', 'RUNNING')")
+    int markFinished(@Param("id") Integer id,
+                     @Param("status") String status,
+                     @Param("error") String error,
+                     @Param("at") LocalDateTime at);
+
+    // Jobs an earlier run of this instance left unfinished; other instances' jobs are not touched
+    @Modifying
+    @Query("UPDATE CardIssuanceJob j SET j.status = 'FAILED', j.error = :error, j.completedAt = :at " +
+            "WHERE j.status IN ('PENDING', 'RUNNING') AND j.instanceId = :instanceId AND j.createdAt < :createdBefore")
+    int failUnfinished(@Param("instanceId") String instanceId,
+                       @Param("error") String error,
+                       @Param("createdBefore") LocalDateTime createdBefore,
+                       @Param("at") LocalDateTime at);
+
+}
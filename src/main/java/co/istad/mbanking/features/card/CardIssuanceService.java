@@ -0,0 +1,12 @@
+package co.istad.mbanking.features.card;
+
+import co.istad.mbanking.features.card.dto.BulkCardIssuanceRequest;
+import co.istad.mbanking.features.card.dto.CardIssuanceJobResponse;
+
+public interface CardIssuanceService {
+
+    CardIssuanceJobResponse submit(BulkCardIssuanceRequest bulkCardIssuanceRequest);
+
+    CardIssuanceJobResponse findByUuid(String uuid);
+
+}
@@ -0,0 +1,282 @@
+package co.istad.mbanking.features.card;
+
+import co.istad.mbanking.domain.Card;
+import co.istad.mbanking.domain.CardIssuanceJob;
+import co.istad.mbanking.domain.CardType;
+import co.istad.mbanking.features.card.dto.BulkCardHolderRequest;
+import co.istad.mbanking.features.card.dto.BulkCardIssuanceRequest;
+import co.istad.mbanking.features.card.dto.CardIssuanceJobResponse;
+import co.istad.mbanking.features.reference.ReferenceDataCache;
+import co.istad.mbanking.features.user.UserRepository;
+import co.istad.mbanking.features.user.dto.UserIdRow;
+import co.istad.mbanking.mapper.CardMapper;
+import co.istad.mbanking.security.CurrentUserUtil;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bulk card issuance. A job row is created and returned straight away; the cards are then inserted
+ * on a background virtual thread in chunks, each chunk one transaction with its rows written through
+ * JDBC batching. A chunk's numbers are reserved before its transaction opens, so a job never holds
+ * two pooled connections at once, and at most max-concurrent-jobs jobs run at a time.
+ * At most max-queued-jobs jobs (running or waiting, each holding its holder list) are accepted;
+ * further submissions are rejected with 503.
+ * The job's issued count advances with every committed chunk, so callers can poll progress.
+ * Jobs record the instance that runs them, so a restart only fails the jobs of its own instance.
+ */
+@Service
+@Slf4j
+public class CardIssuanceServiceImpl implements CardIssuanceService, DisposableBean {
+
+    private static final int OWNER_BATCH_SIZE = 1000;
+
+    private final CardIssuanceJobRepository cardIssuanceJobRepository;
+    private final CardTypeRepository cardTypeRepository;
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final CardNumberAllocator cardNumberAllocator;
+    private final CardMapper cardMapper;
+    private final CurrentUserUtil currentUserUtil;
+    private final ReferenceDataCache referenceDataCache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final String instanceId;
+
+    private final Semaphore jobPermits;
+    private final Semaphore queueSlots;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final ExecutorService jobs = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CardIssuanceServiceImpl(CardIssuanceJobRepository cardIssuanceJobRepository,
+                                   CardTypeRepository cardTypeRepository,
+                                   CardRepository cardRepository,
+                                   UserRepository userRepository,
+                                   CardNumberAllocator cardNumberAllocator,
+                                   CardMapper cardMapper,
+                                   CurrentUserUtil currentUserUtil,
+                                   ReferenceDataCache referenceDataCache,
+                                   EntityManager entityManager,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${mbanking.card.issuance.chunk-size:1000}") int chunkSize,
+                                   @Value("${mbanking.card.issuance.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                   @Value("${mbanking.card.issuance.max-queued-jobs:8}") int maxQueuedJobs,
+                                   @Value("${mbanking.instance-id}") String instanceId) {
+        this.cardIssuanceJobRepository = cardIssuanceJobRepository;
+        this.cardTypeRepository = cardTypeRepository;
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.cardNumberAllocator = cardNumberAllocator;
+        this.cardMapper = cardMapper;
+        this.currentUserUtil = currentUserUtil;
+        this.referenceDataCache = referenceDataCache;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.instanceId = instanceId;
+        this.jobPermits = new Semaphore(Math.max(1, maxConcurrentJobs), true);
+        this.queueSlots = new Semaphore(Math.max(1, maxQueuedJobs));
+    }
+
+    @Override
+    public CardIssuanceJobResponse submit(BulkCardIssuanceRequest bulkCardIssuanceRequest) {
+        CardType cardType = referenceDataCache.findCardTypeByAlias(bulkCardIssuanceRequest.cardTypeAlias())
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        "Card type with alias " + bulkCardIssuanceRequest.cardTypeAlias() + " not found"));
+
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
+
+        // Owners are resolved up front, so a bad uuid rejects the request instead of failing the job halfway
+        List<BulkCardHolderRequest> holders = bulkCardIssuanceRequest.holders();
+        Map<String, Integer> ownerIds = resolveOwnerIds(holders);
+        List<Integer> holderOwnerIds = holders.stream()
+                .map(holder -> holder.userUuid() == null || holder.userUuid().isBlank()
+                        ? currentUserId
+                        : ownerIds.get(holder.userUuid()))
+                .toList();
+
+        // The slot is held from here until the job finishes
+        if (!queueSlots.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many card issuance jobs in progress, please try again later");
+        }
+
+        CardIssuanceJob job = new CardIssuanceJob();
+        job.setUuid(UUID.randomUUID().toString());
+        job.setCardType(cardType);
+        job.setRequestedBy(userRepository.getReferenceById(currentUserId));
+        job.setStatus("PENDING");
+        job.setTotal(holders.size());
+        job.setIssued(0);
+        job.setInstanceId(instanceId);
+        job.setCreatedAt(LocalDateTime.now());
+        try {
+            job = cardIssuanceJobRepository.save(job);
+
+            Integer jobId = job.getId();
+            Integer cardTypeId = cardType.getId();
+            List<String> holderNames = holders.stream().map(BulkCardHolderRequest::holder).toList();
+            jobs.submit(() -> run(jobId, cardTypeId, holderNames, holderOwnerIds));
+        } catch (RuntimeException e) {
+            queueSlots.release();
+            throw e;
+        }
+
+        return cardMapper.toCardIssuanceJobResponse(job);
+    }
+
+    @Override
+    public CardIssuanceJobResponse findByUuid(String uuid) {
+        CardIssuanceJob job = cardIssuanceJobRepository.findByUuid(uuid)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        "Card issuance job " + uuid + " not found"));
+
+        return cardMapper.toCardIssuanceJobResponse(job);
+    }
+
+    private Map<String, Integer> resolveOwnerIds(List<BulkCardHolderRequest> holders) {
+        List<String> uuids = holders.stream()
+                .map(BulkCardHolderRequest::userUuid)
+                .filter(Objects::nonNull)
+                .filter(uuid -> !uuid.isBlank())
+                .distinct()
+                .toList();
+
+        Map<String, Integer> ownerIds = new HashMap<>();
+        for (int from = 0; from < uuids.size(); from += OWNER_BATCH_SIZE) {
+            List<String> chunk = uuids.subList(from, Math.min(from + OWNER_BATCH_SIZE, uuids.size()));
+            for (UserIdRow row : userRepository.findIdsByUuidIn(chunk)) {
+                ownerIds.put(row.getUuid(), row.getId());
+            }
+        }
+
+        for (String uuid : uuids) {
+            if (!ownerIds.containsKey(uuid)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User " + uuid + " has not been found");
+            }
+        }
+        return ownerIds;
+    }
+
+    private void run(Integer jobId, Integer cardTypeId, List<String> holderNames, List<Integer> ownerIds) {
+        try {
+            // Jobs over the cap stay PENDING until a running one finishes
+            jobPermits.acquire();
+            try {
+                issue(jobId, cardTypeId, holderNames, ownerIds);
+            } finally {
+                jobPermits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queueSlots.release();
+        }
+    }
+
+    private void issue(Integer jobId, Integer cardTypeId, List<String> holderNames, List<Integer> ownerIds) {
+        try {
+            Integer started = transactionTemplate.execute(status ->
+                    cardIssuanceJobRepository.markRunning(jobId, LocalDateTime.now()));
+            if (started == null || started == 0) {
+                log.warn("Card issuance job {} is no longer PENDING, not running it", jobId);
+                return;
+            }
+
+            for (int from = 0; from < holderNames.size(); from += chunkSize) {
+                int to = Math.min(from + chunkSize, holderNames.size());
+                List<String> names = holderNames.subList(from, to);
+                List<Integer> owners = ownerIds.subList(from, to);
+
+                // Reserved in its own short transaction before the chunk's transaction takes a connection
+                List<String> cardNumbers = cardNumberAllocator.allocate(names.size());
+
+                // A job failed meanwhile (e.g. by a restart of its instance) rolls the chunk back
+                transactionTemplate.executeWithoutResult(status -> {
+                    issueChunk(cardTypeId, names, owners, cardNumbers);
+                    if (cardIssuanceJobRepository.addIssued(jobId, names.size()) == 0) {
+                        throw new IllegalStateException("Job is no longer RUNNING");
+                    }
+                });
+            }
+
+            transactionTemplate.executeWithoutResult(status ->
+                    cardIssuanceJobRepository.markFinished(jobId, "COMPLETED", null, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            log.error("Card issuance job {} failed", jobId, e);
+            String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            transactionTemplate.executeWithoutResult(status ->
+                    cardIssuanceJobRepository.markFinished(jobId, "FAILED",
+                            error.length() > 500 ? error.substring(0, 500) : error, LocalDateTime.now()));
+        }
+    }
+
+    private void issueChunk(Integer cardTypeId, List<String> names, List<Integer> owners, List<String> cardNumbers) {
+        CardType cardType = cardTypeRepository.getReferenceById(cardTypeId);
+        LocalDate issuedAt = LocalDate.now();
+        LocalDate expiredAt = issuedAt.plusYears(4);
+
+        List<Card> cards = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            Card card = new Card();
+            card.setHolder(names.get(i));
+            card.setNumber(cardNumbers.get(i));
+            card.setCvv(String.format("%03d", secureRandom.nextInt(1000)));
+            card.setCardType(cardType);
+            card.setUser(userRepository.getReferenceById(owners.get(i)));
+            card.setIssuedAt(issuedAt);
+            card.setExpiredAt(expiredAt);
+            card.setIsDeleted(false);
+            card.setIsFrozen(false);
+            cards.add(card);
+        }
+
+        // Inserted in JDBC batches (pooled cards_seq ids, hibernate.jdbc.batch_size);
+        // the context is cleared so a large job does not accumulate managed cards
+        cardRepository.saveAll(cards);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // Jobs run in the process that accepted them, so this instance's jobs created before it started and
+    // still PENDING or RUNNING died with its previous run; other instances and new jobs are left alone
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        Integer failed = transactionTemplate.execute(status -> cardIssuanceJobRepository.failUnfinished(
+                instanceId, "Interrupted by an application restart", startedAt, LocalDateTime.now()));
+        if (failed != null && failed > 0) {
+            log.warn("Marked {} interrupted card issuance job(s) as FAILED", failed);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        jobs.shutdown();
+    }
+
+}
@@ -0,0 +1,230 @@
+package co.istad.mbanking.features.card;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Issues 16-digit card numbers: 6-digit BIN + 9-digit account identifier + Luhn check digit.
+ * The account identifier is a per-BIN sequence value pushed through a keyed Feistel permutation of
+ * [0, 10^9), so allocated numbers never repeat one another but are not sequential.
+ * Sequence values are reserved from card_number_sequences in blocks and handed out in memory.
+ * Cards issued before the allocator carry random numbers a permuted value can hit, so each reserved
+ * block is checked against the cards table with one query, in the reservation's transaction, and
+ * numbers already taken are skipped.
+ */
+@Component
+@Slf4j
+public class CardNumberAllocator {
+
+    private static final long IDENTIFIER_SPACE = 1_000_000_000L;
+    private static final int HALF_BITS = 15;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+    private static final int LOOKUP_BATCH = 1000;
+
+    private final CardNumberSequenceRepository cardNumberSequenceRepository;
+    private final CardRepository cardRepository;
+    private final TransactionTemplate requiresNewTemplate;
+    private final String defaultBin;
+    private final long blockSize;
+    private final long[] roundKeys;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public CardNumberAllocator(CardNumberSequenceRepository cardNumberSequenceRepository,
+                               CardRepository cardRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${mbanking.card.number.bin:400000}") String defaultBin,
+                               @Value("${mbanking.card.number.block-size:100}") long blockSize,
+                               @Value("${mbanking.card.number.secret}") String secret) {
+        if (!defaultBin.matches("\\d{6}")) {
+            throw new IllegalArgumentException("mbanking.card.number.bin must be 6 digits: " + defaultBin);
+        }
+        // Anyone holding the key can map issued numbers back to their sequence, so it never comes from the repo
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("mbanking.card.number.secret must be set (MBANKING_CARD_NUMBER_SECRET)");
+        }
+
+        this.cardNumberSequenceRepository = cardNumberSequenceRepository;
+        this.cardRepository = cardRepository;
+        this.defaultBin = defaultBin;
+        this.blockSize = Math.max(1, blockSize);
+        this.roundKeys = deriveRoundKeys(secret);
+
+        // Reserved blocks survive a rollback of the issuing transaction; unused values only leave gaps
+        this.requiresNewTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public String allocate() {
+        return allocate(defaultBin);
+    }
+
+    public String allocate(String bin) {
+        return blocks.computeIfAbsent(bin, key -> new Block()).next(bin);
+    }
+
+    // Bulk issuance: dedicated blocks of exactly the missing count, usually a single round trip
+    public List<String> allocate(int count) {
+        List<String> cardNumbers = new ArrayList<>(count);
+        while (cardNumbers.size() < count) {
+            cardNumbers.addAll(reserveFreeNumbers(defaultBin, count - cardNumbers.size()));
+        }
+        return cardNumbers;
+    }
+
+    // Inverse of allocate: the sequence value a card number was issued from
+    public long sequenceOf(String cardNumber) {
+        return unpermute(Long.parseLong(cardNumber.substring(6, 15)));
+    }
+
+    private String toCardNumber(String bin, long sequence) {
+        String body = bin + String.format("%09d", permute(sequence));
+        return body + luhnCheckDigit(body);
+    }
+
+    // Reserves size sequence values and returns their card numbers, minus any a card already holds
+    private List<String> reserveFreeNumbers(String bin, long size) {
+        List<String> free = requiresNewTemplate.execute(status -> {
+            long end = cardNumberSequenceRepository.reserveBlock(bin, size);
+            if (end > IDENTIFIER_SPACE) {
+                return null;
+            }
+
+            List<String> cardNumbers = new ArrayList<>((int) size);
+            for (long sequence = end - size; sequence < end; sequence++) {
+                cardNumbers.add(toCardNumber(bin, sequence));
+            }
+
+            Set<String> taken = new HashSet<>();
+            for (int from = 0; from < cardNumbers.size(); from += LOOKUP_BATCH) {
+                taken.addAll(cardRepository.findNumbersIn(
+                        cardNumbers.subList(from, Math.min(from + LOOKUP_BATCH, cardNumbers.size()))));
+            }
+            if (!taken.isEmpty()) {
+                log.warn("Skipping {} card numbers of BIN {} already held by existing cards", taken.size(), bin);
+                cardNumbers.removeAll(taken);
+            }
+            return cardNumbers;
+        });
+
+        if (free == null) {
+            log.error("Card number space of BIN {} is exhausted", bin);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Card numbers are exhausted for BIN " + bin);
+        }
+        return free;
+    }
+
+    // Feistel network over 30 bits, cycle-walked until the value falls back into [0, 10^9)
+    long permute(long value) {
+        long result = value;
+        do {
+            long left = result >>> HALF_BITS;
+            long right = result & HALF_MASK;
+            for (int round = 0; round < ROUNDS; round++) {
+                long next = left ^ round(right, roundKeys[round]);
+                left = right;
+                right = next;
+            }
+            result = (left << HALF_BITS) | right;
+        } while (result >= IDENTIFIER_SPACE);
+        return result;
+    }
+
+    long unpermute(long value) {
+        long result = value;
+        do {
+            long left = result >>> HALF_BITS;
+            long right = result & HALF_MASK;
+            for (int round = ROUNDS - 1; round >= 0; round--) {
+                long previous = right ^ round(left, roundKeys[round]);
+                right = left;
+                left = previous;
+            }
+            result = (left << HALF_BITS) | right;
+        } while (result >= IDENTIFIER_SPACE);
+        return result;
+    }
+
+    // SplitMix64 finaliser of the half block mixed with the round key
+    private static long round(long half, long key) {
+        long z = (half + key) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (z ^ (z >>> 31)) & HALF_MASK;
+    }
+
+    static int luhnCheckDigit(String digits) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static long[] deriveRoundKeys(String secret) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            long[] keys = new long[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                keys[i] = buffer.getLong();
+            }
+            return keys;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Free card numbers left in the block currently reserved for one BIN
+    private final class Block {
+
+        // ReentrantLock rather than synchronized, so a virtual thread reserving a block does not pin its carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Deque<String> cardNumbers = new ArrayDeque<>();
+
+        String next(String bin) {
+            lock.lock();
+            try {
+                while (cardNumbers.isEmpty()) {
+                    cardNumbers.addAll(reserveFreeNumbers(bin, blockSize));
+                }
+                return cardNumbers.poll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+    }
+
+}
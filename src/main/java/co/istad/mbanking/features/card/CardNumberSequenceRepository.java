@@ -0,0 +1,19 @@
+package co.istad.mbanking.features.card;
+
+import co.istad.mbanking.domain.CardNumberSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CardNumberSequenceRepository extends JpaRepository<CardNumberSequence, String> {
+
+    // Reserve the next blockSize values of a BIN in one statement and return the end (exclusive) of the block.
+    // The row lock taken by the upsert serialises concurrent reservations across instances
+    @Query(value = """
+            INSERT INTO card_number_sequences (bin, next_value) VALUES (:bin, :blockSize)
+            ON CONFLICT (bin) DO UPDATE SET next_value = card_number_sequences.next_value + :blockSize
+            RETURNING next_value
+            """, nativeQuery = true)
+    long reserveBlock(@Param("bin") String bin, @Param("blockSize") long blockSize);
+
+}
@@ -1,34 +1,52 @@
 package co.istad.mbanking.features.card;
 
 import co.istad.mbanking.domain.Card;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface CardRepository extends JpaRepository<Card, Integer> {
+public interface CardRepository extends JpaRepository<Card, Integer>, CardSearchRepository {
+
+    // List queries below join the card type, owner and linked account (with its user account) into the card
+    // query, instead of resolving those eager associations with one select per card
+
     // Check if a card number already exists
     boolean existsByNumber(String number);
 
+    // Which of the given card numbers are already taken, in one query
+    @Query("SELECT c.number FROM Card c WHERE c.number IN :numbers")
+    List<String> findNumbersIn(@Param("numbers") Collection<String> numbers);
+
     // Find card by number
     Optional<Card> findByNumber(String number);
 
     // Find card by holder name
+    @EntityGraph(attributePaths = {"cardType", "user", "account", "account.userAccount"})
     List<Card> findByHolder(String holder);
 
     // Find cards by user ID
+    @EntityGraph(attributePaths = {"cardType", "user", "account", "account.userAccount"})
     List<Card> findByUserId(Integer userId);
 
     // Find active (not deleted) cards
+    @EntityGraph(attributePaths = {"cardType", "user", "account", "account.userAccount"})
     List<Card> findByIsDeletedFalse();
 
     // Find all cards by CardType
+    @EntityGraph(attributePaths = {"cardType", "user", "account", "account.userAccount"})
     List<Card> findByCardTypeId(Integer cardTypeId);
 
     // Find expired cards
+    @EntityGraph(attributePaths = {"cardType", "user", "account", "account.userAccount"})
     List<Card> findByExpiredAtBefore(LocalDate date);
 
     // Find valid (non-expired) cards
+    @EntityGraph(attributePaths = {"cardType", "user", "account", "account.userAccount"})
     List<Card> findByExpiredAtAfter(LocalDate date);
-}
\ No newline at end of file
+}
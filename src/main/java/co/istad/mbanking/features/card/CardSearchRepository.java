@@ -0,0 +1,22 @@
+package co.istad.mbanking.features.card;
+
+import co.istad.mbanking.features.card.dto.CardSearchRow;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Card search, built per filter combination instead of one query with catch-all predicates (see the Impl)
+public interface CardSearchRepository {
+
+    // Keyset page of cards with an id below cursorId, newest first, no count query.
+    // Null filters are left out; holderPattern is an upper-cased, escaped prefix ending in %
+    List<CardSearchRow> searchAfter(Integer cardTypeId,
+                                    Boolean frozen,
+                                    Boolean deleted,
+                                    LocalDate expiredFrom,
+                                    LocalDate expiredTo,
+                                    String holderPattern,
+                                    Integer cursorId,
+                                    int limit);
+
+}
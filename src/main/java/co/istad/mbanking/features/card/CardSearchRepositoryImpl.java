@@ -0,0 +1,99 @@
+package co.istad.mbanking.features.card;
+
+import co.istad.mbanking.features.card.dto.CardSearchRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Card search with only the filters that are set in the WHERE clause, so each combination is its own
+ * statement and Postgres plans it for the indexes that combination can use; a single query with
+ * (:x IS NULL OR ...) predicates is planned generically after a few executions and ignores them.
+ * <p>
+ * Equality filters follow the keyset order: card type uses (card_type_id, id DESC), and frozen/deleted
+ * are inlined as literals so the partial (id DESC) indexes on is_frozen/is_deleted can match.
+ * The expiry window and holder prefix are range filters: no index gives them in id order, so Postgres
+ * either walks id DESC discarding non-matching rows or reads the whole range and sorts it.
+ * Their cost is bounded by the size of the range, not the page, so callers should keep them narrow
+ * or combine them with an equality filter.
+ */
+class CardSearchRepositoryImpl implements CardSearchRepository {
+
+    private static final String SELECT = "SELECT c.id AS id, c.number AS number, c.holder AS holder, " +
+            "c.issuedAt AS issuedAt, c.expiredAt AS expiredAt, c.isDeleted AS isDeleted, c.isFrozen AS isFrozen, " +
+            "t.alias AS cardTypeAlias, t.name AS cardTypeName, u.uuid AS ownerUuid " +
+            "FROM Card c JOIN c.cardType t LEFT JOIN c.user u " +
+            "WHERE c.id < :cursorId";
+
+    private final EntityManager entityManager;
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    CardSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<CardSearchRow> searchAfter(Integer cardTypeId,
+                                           Boolean frozen,
+                                           Boolean deleted,
+                                           LocalDate expiredFrom,
+                                           LocalDate expiredTo,
+                                           String holderPattern,
+                                           Integer cursorId,
+                                           int limit) {
+        StringBuilder jpql = new StringBuilder(SELECT);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("cursorId", cursorId);
+
+        if (cardTypeId != null) {
+            jpql.append(" AND t.id = :cardTypeId");
+            parameters.put("cardTypeId", cardTypeId);
+        }
+        // Literals, not parameters: a partial index only matches a predicate it can prove at plan time
+        if (frozen != null) {
+            jpql.append(" AND c.isFrozen = ").append(frozen);
+        }
+        if (deleted != null) {
+            jpql.append(" AND c.isDeleted = ").append(deleted);
+        }
+        if (expiredFrom != null) {
+            jpql.append(" AND c.expiredAt >= :expiredFrom");
+            parameters.put("expiredFrom", expiredFrom);
+        }
+        if (expiredTo != null) {
+            jpql.append(" AND c.expiredAt < :expiredTo");
+            parameters.put("expiredTo", expiredTo);
+        }
+        if (holderPattern != null) {
+            jpql.append(" AND UPPER(c.holder) LIKE :holderPattern ESCAPE '\\'");
+            parameters.put("holderPattern", holderPattern);
+        }
+        jpql.append(" ORDER BY c.id DESC");
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        parameters.forEach(query::setParameter);
+        query.setMaxResults(limit);
+
+        return query.getResultList().stream()
+                .map(this::toRow)
+                .toList();
+    }
+
+    private CardSearchRow toRow(Tuple tuple) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            values.put(element.getAlias(), tuple.get(element));
+        }
+        return projectionFactory.createProjection(CardSearchRow.class, values);
+    }
+
+}
@@ -2,6 +2,8 @@ package co.istad.mbanking.features.card;
 
 import co.istad.mbanking.features.card.dto.CardRequest;
 import co.istad.mbanking.features.card.dto.CardResponse;
+import co.istad.mbanking.features.card.dto.CardSearchRequest;
+import co.istad.mbanking.features.card.dto.CardSearchResponse;
 
 import java.util.List;
 
@@ -28,6 +30,8 @@ public interface CardService {
 
     List<CardResponse> getAllCards();
 
+    CardSearchResponse searchCards(CardSearchRequest cardSearchRequest, String cursor, int limit);
+
     CardResponse freezeCard(Integer id);
 
     CardResponse unfreezeCard(Integer id);
@@ -3,12 +3,20 @@ package co.istad.mbanking.features.card;
 import co.istad.mbanking.domain.Card;
 import co.istad.mbanking.domain.CardType;
 import co.istad.mbanking.domain.User;
+import co.istad.mbanking.domain.UserAccount;
 import co.istad.mbanking.features.account.AccountRepository;
 import co.istad.mbanking.features.account.AccountService;
+import co.istad.mbanking.features.account.UserAccountRepository;
 import co.istad.mbanking.features.account.dto.AccountDetailResponse;
 import co.istad.mbanking.features.card.dto.CardRequest;
 import co.istad.mbanking.features.card.dto.CardResponse;
+import co.istad.mbanking.features.card.dto.CardSearchRequest;
+import co.istad.mbanking.features.card.dto.CardSearchResponse;
+import co.istad.mbanking.features.card.dto.CardSearchRow;
 import co.istad.mbanking.features.card.dto.CardTypeResponse;
+import co.istad.mbanking.features.reference.ReferenceDataCache;
+import co.istad.mbanking.features.transaction.BalanceShardService;
+import co.istad.mbanking.features.user.UserRepository;
 import co.istad.mbanking.mapper.AccountMapper;
 import co.istad.mbanking.mapper.CardMapper;
 import co.istad.mbanking.security.CurrentUserUtil;
@@ -19,7 +27,12 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
 import java.util.stream.Collectors;
 
@@ -28,36 +41,20 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CardServiceImpl implements CardService {
 
+    private static final int OWNER_BATCH_SIZE = 1000;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final CardMapper cardMapper;
     private final CardRepository cardRepository;
-    private final CardTypeRepository cardTypeRepository;
     private final CurrentUserUtil currentUserUtil;
     private final AccountRepository accountRepository;
     private final AccountMapper accountMapper;
     private final AccountService accountService;
-
-    // Helper method to generate a random card number
-    private String generateCardNumber() {
-        Random random = new Random();
-        StringBuilder cardNumber = new StringBuilder();
-
-        // Most card numbers start with specific digits based on the card network
-        // For simplicity, we'll use 4 (like Visa)
-        cardNumber.append("4");
-
-        // Generate 15 more random digits
-        for (int i = 0; i < 15; i++) {
-            cardNumber.append(random.nextInt(10));
-        }
-
-        // Check if this number already exists
-        if (cardRepository.existsByNumber(cardNumber.toString())) {
-            // If it exists, recursively try again
-            return generateCardNumber();
-        }
-
-        return cardNumber.toString();
-    }
+    private final UserAccountRepository userAccountRepository;
+    private final CardNumberAllocator cardNumberAllocator;
+    private final ReferenceDataCache referenceDataCache;
+    private final BalanceShardService balanceShardService;
+    private final UserRepository userRepository;
 
     // Helper method to generate a random 3-digit CVV
     private String generateCVV() {
@@ -80,7 +77,7 @@ public class CardServiceImpl implements CardService {
     @Override
     public CardResponse createCard(CardRequest cardRequest) {
         // Check if card type exists
-        CardType cardType = cardTypeRepository.findByAlias(cardRequest.cardTypeAlias())
+        CardType cardType = referenceDataCache.findCardTypeByAlias(cardRequest.cardTypeAlias())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Card type with alias " + cardRequest.cardTypeAlias() + " not found"));
@@ -90,7 +87,7 @@ public class CardServiceImpl implements CardService {
         card.setHolder(cardRequest.holder());
 
         // Auto-generate card number, CVV, and expiry date
-        String cardNumber = generateCardNumber();
+        String cardNumber = cardNumberAllocator.allocate();
         String cvv = generateCVV();
         LocalDate expiryDate = generateExpiryDate();
 
@@ -104,8 +101,7 @@ public class CardServiceImpl implements CardService {
         card.setIsFrozen(false);
 
         // Get current user and set as the owner of the card
-        User currentUser = currentUserUtil.getCurrentUser();
-        card.setUser(currentUser);
+        card.setUser(userRepository.getReferenceById(currentUserUtil.getCurrentUserId()));
 
         // Save and return
         card = cardRepository.save(card);
@@ -145,7 +141,7 @@ public class CardServiceImpl implements CardService {
 
         // Check card type and update if provided
         if (cardRequest.cardTypeAlias() != null && !cardRequest.cardTypeAlias().isBlank()) {
-            CardType cardType = cardTypeRepository.findByAlias(cardRequest.cardTypeAlias())
+            CardType cardType = referenceDataCache.findCardTypeByAlias(cardRequest.cardTypeAlias())
                     .orElseThrow(() -> new ResponseStatusException(
                             HttpStatus.NOT_FOUND,
                             "Card type with alias " + cardRequest.cardTypeAlias() + " not found"));
@@ -153,7 +149,7 @@ public class CardServiceImpl implements CardService {
         }
 
         // Auto-generate new card details (similar to createCard)
-        String cardNumber = generateCardNumber();
+        String cardNumber = cardNumberAllocator.allocate();
         String cvv = generateCVV();
         LocalDate expiryDate = generateExpiryDate();
 
@@ -269,13 +265,10 @@ public class CardServiceImpl implements CardService {
         );
     }
 
-    private CardResponse enrichCardResponseWithCardType(Card card) {
+    private CardResponse toCardResponse(Card card, List<AccountDetailResponse> accounts) {
         CardResponse cardResponse = cardMapper.toCardResponse(card);
         CardTypeResponse cardTypeResponse = cardMapper.toCardTypeResponse(card.getCardType());
 
-        // Get all accounts for the current user
-        List<AccountDetailResponse> userAccounts = accountService.findCurrentUserAccounts();
-
         return new CardResponse(
             cardResponse.id(),
             cardResponse.number(),
@@ -285,68 +278,139 @@ public class CardServiceImpl implements CardService {
             cardResponse.isDeleted(),
             cardResponse.isFrozen(),
             cardTypeResponse,
-            userAccounts
+            accounts
         );
     }
 
-    @Override
-    public List<CardResponse> getCardsByHolder(String holder) {
-        List<Card> cards = cardRepository.findByHolder(holder);
+    // Map a card listing with each card's owner accounts, loaded once per distinct owner
+    private List<CardResponse> toCardResponses(List<Card> cards) {
+        Map<Integer, List<AccountDetailResponse>> accountsByUserId = findAccountsByUserId(cards);
+
         return cards.stream()
-                .map(this::enrichCardResponseWithCardType)
+                .map(card -> toCardResponse(card, card.getUser() == null
+                        ? List.of()
+                        : accountsByUserId.getOrDefault(card.getUser().getId(), List.of())))
                 .collect(Collectors.toList());
     }
 
+    private Map<Integer, List<AccountDetailResponse>> findAccountsByUserId(List<Card> cards) {
+        List<Integer> userIds = cards.stream()
+                .map(Card::getUser)
+                .filter(Objects::nonNull)
+                .map(User::getId)
+                .distinct()
+                .toList();
+
+        // Chunked so the IN list stays well below the driver's bind parameter limit
+        Map<Integer, List<AccountDetailResponse>> accountsByUserId = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += OWNER_BATCH_SIZE) {
+            List<Integer> chunk = userIds.subList(from, Math.min(from + OWNER_BATCH_SIZE, userIds.size()));
+            List<UserAccount> userAccounts = userAccountRepository.findActiveByUserIdIn(chunk);
+            balanceShardService.loadPendingCredits(userAccounts.stream().map(UserAccount::getAccount).toList());
+            for (UserAccount userAccount : userAccounts) {
+                accountsByUserId.computeIfAbsent(userAccount.getUser().getId(), id -> new ArrayList<>())
+                        .add(accountMapper.toAccountDetailResponse(userAccount.getAccount()));
+            }
+        }
+        return accountsByUserId;
+    }
+
+    @Override
+    public List<CardResponse> getCardsByHolder(String holder) {
+        return toCardResponses(cardRepository.findByHolder(holder));
+    }
+
     @Override
     public List<CardResponse> getAllActiveCards() {
-        List<Card> activeCards = cardRepository.findByIsDeletedFalse();
-        return activeCards.stream()
-                .map(this::enrichCardResponseWithCardType)
-                .collect(Collectors.toList());
+        return toCardResponses(cardRepository.findByIsDeletedFalse());
     }
 
     @Override
     public List<CardResponse> getCardsByCardTypeId(Integer cardTypeId) {
         // Verify card type exists
-        if (!cardTypeRepository.existsById(cardTypeId)) {
+        if (!referenceDataCache.existsCardTypeById(cardTypeId)) {
             throw new ResponseStatusException(
                     HttpStatus.NOT_FOUND,
                     "Card type with ID " + cardTypeId + " not found");
         }
 
-        List<Card> cards = cardRepository.findByCardTypeId(cardTypeId);
-        return cards.stream()
-                .map(this::enrichCardResponseWithCardType)
-                .collect(Collectors.toList());
+        return toCardResponses(cardRepository.findByCardTypeId(cardTypeId));
     }
 
     @Override
     public List<CardResponse> getExpiredCards() {
-        List<Card> expiredCards = cardRepository.findByExpiredAtBefore(LocalDate.now());
-        return expiredCards.stream()
-                .map(this::enrichCardResponseWithCardType)
-                .collect(Collectors.toList());
+        return toCardResponses(cardRepository.findByExpiredAtBefore(LocalDate.now()));
     }
 
     @Override
     public List<CardResponse> getAllCards() {
-        List<Card> validCards = cardRepository.findByExpiredAtAfter(LocalDate.now());
-        return validCards.stream()
-                .map(this::enrichCardResponseWithCardType)
-                .collect(Collectors.toList());
+        return toCardResponses(cardRepository.findByExpiredAtAfter(LocalDate.now()));
+    }
+
+    @Override
+    public CardSearchResponse searchCards(CardSearchRequest cardSearchRequest, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+
+        if (cardSearchRequest.expiredFrom() != null && cardSearchRequest.expiredTo() != null
+                && cardSearchRequest.expiredFrom().isAfter(cardSearchRequest.expiredTo())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "expiredFrom must not be after expiredTo");
+        }
+
+        CardCursor after = CardCursor.decode(cursor);
+
+        // Fetch one extra row to know whether there is a next page, without a count query
+        List<CardSearchRow> cards = cardRepository.searchAfter(
+                cardSearchRequest.cardTypeId(),
+                cardSearchRequest.frozen(),
+                cardSearchRequest.deleted(),
+                cardSearchRequest.expiredFrom(),
+                cardSearchRequest.expiredTo(),
+                toHolderPattern(cardSearchRequest.holderPrefix()),
+                after.id(),
+                limit + 1);
+
+        boolean hasNext = cards.size() > limit;
+        List<CardSearchRow> page = hasNext ? cards.subList(0, limit) : cards;
+
+        return CardSearchResponse.builder()
+                .cards(page.stream()
+                        .map(cardMapper::toCardSummaryResponse)
+                        .collect(Collectors.toList()))
+                .limit(limit)
+                .nextCursor(hasNext ? new CardCursor(page.get(page.size() - 1).getId()).encode() : null)
+                .build();
+    }
+
+    // Case-insensitive prefix match that can use the upper(holder) index; LIKE wildcards in the input are literal
+    private static String toHolderPattern(String holderPrefix) {
+        if (holderPrefix == null || holderPrefix.isBlank()) {
+            return null;
+        }
+
+        String escaped = holderPrefix.strip().toUpperCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return escaped + "%";
     }
 
     @Override
     public List<CardResponse> getCurrentUserCards() {
         // Get the current user
-        User currentUser = currentUserUtil.getCurrentUser();
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
 
         // Find all cards owned by this user
-        List<Card> userCards = cardRepository.findByUserId(currentUser.getId());
+        List<Card> userCards = cardRepository.findByUserId(currentUserId);
+
+        // Every card has the same owner, so the accounts are fetched once
+        List<AccountDetailResponse> userAccounts = accountService.findCurrentUserAccounts();
 
         // Map to response DTOs and return
         return userCards.stream()
-                .map(this::enrichCardResponseWithCardType)
+                .map(card -> toCardResponse(card, userAccounts))
                 .collect(Collectors.toList());
     }
 
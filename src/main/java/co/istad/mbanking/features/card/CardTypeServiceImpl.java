@@ -3,6 +3,7 @@ package co.istad.mbanking.features.card;
 import co.istad.mbanking.domain.CardType;
 import co.istad.mbanking.features.card.dto.CardTypeRequest;
 import co.istad.mbanking.features.card.dto.CardTypeResponse;
+import co.istad.mbanking.features.reference.ReferenceDataCache;
 import co.istad.mbanking.mapper.CardMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -18,6 +19,7 @@ public class CardTypeServiceImpl implements CardTypeService {
 
     private final CardTypeRepository cardTypeRepository;
     private final CardMapper cardMapper;
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public CardTypeResponse createCardType(CardTypeRequest cardTypeRequest) {
@@ -37,6 +39,7 @@ public class CardTypeServiceImpl implements CardTypeService {
 
         // Save and return
         cardType = cardTypeRepository.save(cardType);
+        referenceDataCache.refresh();
         return cardMapper.toCardTypeResponse(cardType);
     }
 
@@ -64,12 +67,13 @@ public class CardTypeServiceImpl implements CardTypeService {
 
         // Save and return
         cardType = cardTypeRepository.save(cardType);
+        referenceDataCache.refresh();
         return cardMapper.toCardTypeResponse(cardType);
     }
 
     @Override
     public CardTypeResponse getCardTypeByAlias(String alias) {
-        CardType cardType = cardTypeRepository.findByAlias(alias)
+        CardType cardType = referenceDataCache.findCardTypeByAlias(alias)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Card type with alias " + alias + " not found"
@@ -89,11 +93,12 @@ public class CardTypeServiceImpl implements CardTypeService {
         // Soft delete
         cardType.setIsDeleted(true);
         cardTypeRepository.save(cardType);
+        referenceDataCache.refresh();
     }
 
     @Override
     public List<CardTypeResponse> getAllCardTypes() {
-        return cardTypeRepository.findAll().stream()
+        return referenceDataCache.findAllCardTypes().stream()
                 .filter(cardType -> !cardType.getIsDeleted())
                 .map(cardMapper::toCardTypeResponse)
                 .collect(Collectors.toList());
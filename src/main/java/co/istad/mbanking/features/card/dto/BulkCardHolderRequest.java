@@ -0,0 +1,16 @@
+package co.istad.mbanking.features.card.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record BulkCardHolderRequest(
+        @NotBlank(message = "Holder name is required")
+        @Size(max = 100, message = "Holder name must be at most 100 characters")
+        @Schema(description = "Card holder name", example = "John Doe")
+        String holder,
+
+        @Schema(description = "UUID of the user who owns the card; defaults to the requesting user")
+        String userUuid
+) {
+}
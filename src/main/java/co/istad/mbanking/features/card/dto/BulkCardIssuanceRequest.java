@@ -0,0 +1,21 @@
+package co.istad.mbanking.features.card.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Schema(description = "Request object for issuing many cards of one type in a background job")
+public record BulkCardIssuanceRequest(
+        @NotBlank(message = "Card type alias is required")
+        @Schema(description = "Card type alias (e.g., visa-card)", example = "visa-card")
+        String cardTypeAlias,
+
+        @NotEmpty(message = "At least one holder is required")
+        @Size(max = 100_000, message = "At most 100000 cards can be issued per job")
+        List<@Valid BulkCardHolderRequest> holders
+) {
+}
@@ -0,0 +1,14 @@
+package co.istad.mbanking.features.card.dto;
+
+import java.time.LocalDateTime;
+
+public record CardIssuanceJobResponse(String uuid,
+                                      String cardTypeAlias,
+                                      String status,
+                                      Integer total,
+                                      Integer issued,
+                                      String error,
+                                      LocalDateTime createdAt,
+                                      LocalDateTime startedAt,
+                                      LocalDateTime completedAt) {
+}
@@ -0,0 +1,12 @@
+package co.istad.mbanking.features.card.dto;
+
+import java.time.LocalDate;
+
+// Every filter is optional; expiry window is [expiredFrom, expiredTo)
+public record CardSearchRequest(Integer cardTypeId,
+                                Boolean frozen,
+                                Boolean deleted,
+                                LocalDate expiredFrom,
+                                LocalDate expiredTo,
+                                String holderPrefix) {
+}
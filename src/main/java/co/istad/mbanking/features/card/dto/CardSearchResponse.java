@@ -0,0 +1,16 @@
+package co.istad.mbanking.features.card.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Builder
+public record CardSearchResponse(
+    List<CardSummaryResponse> cards,
+    Integer limit,
+    // Cursor for the next page, absent on the last page
+    String nextCursor
+) {
+}
@@ -0,0 +1,31 @@
+package co.istad.mbanking.features.card.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Flat projection of one card search row, read in the same query as the page
+ * instead of loading Card with its eager type, owner and account graphs.
+ */
+public interface CardSearchRow {
+
+    Integer getId();
+
+    String getNumber();
+
+    String getHolder();
+
+    LocalDate getIssuedAt();
+
+    LocalDate getExpiredAt();
+
+    Boolean getIsDeleted();
+
+    Boolean getIsFrozen();
+
+    String getCardTypeAlias();
+
+    String getCardTypeName();
+
+    String getOwnerUuid();
+
+}
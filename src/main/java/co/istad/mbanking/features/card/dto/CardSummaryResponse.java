@@ -0,0 +1,15 @@
+package co.istad.mbanking.features.card.dto;
+
+import java.time.LocalDate;
+
+public record CardSummaryResponse(Integer id,
+                                  String number,
+                                  String holder,
+                                  LocalDate issuedAt,
+                                  LocalDate expiredAt,
+                                  Boolean isDeleted,
+                                  Boolean isFrozen,
+                                  String cardTypeAlias,
+                                  String cardTypeName,
+                                  String ownerUuid) {
+}
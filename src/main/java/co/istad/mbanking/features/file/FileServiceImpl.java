@@ -54,7 +54,8 @@ public class FileServiceImpl implements FileService {
         String extension = FileUtil.extractExtension(file.getOriginalFilename());
 
         Path path = Path.of(serverPath + newName);
-        Files.copy(file.getInputStream(), path);
+        // Moves Tomcat's temp file where possible instead of streaming a copy through the request thread
+        file.transferTo(path);
 
         return FileResponse.builder()
                 .name(newName)
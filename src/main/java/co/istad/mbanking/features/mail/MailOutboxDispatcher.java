@@ -0,0 +1,203 @@
+package co.istad.mbanking.features.mail;
+
+import co.istad.mbanking.domain.MailOutbox;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Delivers outbox messages off the request path.
+ * Each poll claims due rows in batches and hands every batch to a worker, which sends it over a
+ * single SMTP connection. At most `workers` batches are in flight; beyond that, messages simply
+ * wait in the outbox table. Failed messages are retried with exponential backoff.
+ */
+@Component
+@Slf4j
+public class MailOutboxDispatcher implements DisposableBean {
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final JavaMailSender javaMailSender;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long claimTimeoutMs;
+
+    private final Semaphore workerPermits;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public MailOutboxDispatcher(MailOutboxRepository mailOutboxRepository,
+                                JavaMailSender javaMailSender,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${mbanking.mail.outbox.workers:4}") int workers,
+                                @Value("${mbanking.mail.outbox.batch-size:20}") int batchSize,
+                                @Value("${mbanking.mail.outbox.max-attempts:5}") int maxAttempts,
+                                @Value("${mbanking.mail.outbox.backoff-ms:5000}") long backoffMs,
+                                @Value("${mbanking.mail.outbox.claim-timeout-ms:300000}") long claimTimeoutMs) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.javaMailSender = javaMailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerPermits = new Semaphore(Math.max(1, workers));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.claimTimeoutMs = claimTimeoutMs;
+    }
+
+    @Scheduled(fixedDelayString = "${mbanking.mail.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        while (workerPermits.tryAcquire()) {
+            List<MailOutbox> batch;
+            try {
+                batch = claim();
+            } catch (RuntimeException e) {
+                workerPermits.release();
+                log.warn("Failed to claim outbox messages: {}", e.getMessage());
+                return;
+            }
+
+            if (batch.isEmpty()) {
+                workerPermits.release();
+                return;
+            }
+
+            workers.execute(() -> {
+                try {
+                    deliver(batch);
+                } finally {
+                    workerPermits.release();
+                }
+            });
+        }
+    }
+
+    // Mark due rows SENDING in a short transaction, so other dispatchers skip them until the claim expires
+    private List<MailOutbox> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<MailOutbox> batch = mailOutboxRepository.findDueForUpdate(now, batchSize);
+            for (MailOutbox mailOutbox : batch) {
+                mailOutbox.setStatus("SENDING");
+                mailOutbox.setNextAttemptAt(now.plusNanos(claimTimeoutMs * 1_000_000));
+            }
+            return batch;
+        });
+    }
+
+    private void deliver(List<MailOutbox> batch) {
+        Map<MailOutbox, Exception> failures = new IdentityHashMap<>();
+        Map<MimeMessage, MailOutbox> prepared = new IdentityHashMap<>();
+
+        for (MailOutbox mailOutbox : batch) {
+            try {
+                prepared.put(toMimeMessage(mailOutbox), mailOutbox);
+            } catch (MessagingException | MailException e) {
+                failures.put(mailOutbox, e);
+            }
+        }
+
+        if (!prepared.isEmpty()) {
+            try {
+                // One connection for the whole batch
+                javaMailSender.send(prepared.keySet().toArray(MimeMessage[]::new));
+            } catch (MailSendException e) {
+                if (e.getFailedMessages().isEmpty()) {
+                    prepared.values().forEach(mailOutbox -> failures.put(mailOutbox, e));
+                } else {
+                    e.getFailedMessages().forEach((message, cause) -> {
+                        MailOutbox mailOutbox = prepared.get(message);
+                        if (mailOutbox != null) {
+                            failures.put(mailOutbox, cause);
+                        }
+                    });
+                }
+            } catch (MailException e) {
+                prepared.values().forEach(mailOutbox -> failures.put(mailOutbox, e));
+            }
+        }
+
+        try {
+            recordOutcome(batch, failures);
+        } catch (RuntimeException e) {
+            // Rows stay SENDING and are picked up again once the claim expires
+            log.error("Failed to record outbox delivery outcome: {}", e.getMessage(), e);
+        }
+    }
+
+    private void recordOutcome(List<MailOutbox> batch, Map<MailOutbox, Exception> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        List<MailOutbox> updated = new ArrayList<>(batch.size());
+
+        for (MailOutbox mailOutbox : batch) {
+            Exception failure = failures.get(mailOutbox);
+            if (failure == null) {
+                mailOutbox.setStatus("SENT");
+                mailOutbox.setSentAt(now);
+                mailOutbox.setLastError(null);
+                // Bodies carry verification codes and temporary passwords; don't keep them once delivered
+                mailOutbox.setBody("");
+            } else {
+                int attempts = mailOutbox.getAttempts() + 1;
+                mailOutbox.setAttempts(attempts);
+                mailOutbox.setLastError(truncate(failure.getMessage()));
+                if (attempts >= maxAttempts) {
+                    mailOutbox.setStatus("FAILED");
+                    log.error("Giving up on mail {} to {} after {} attempts: {}",
+                            mailOutbox.getId(), mailOutbox.getRecipient(), attempts, failure.getMessage());
+                } else {
+                    mailOutbox.setStatus("PENDING");
+                    long delayMs = backoffMs << Math.min(attempts - 1, 16);
+                    mailOutbox.setNextAttemptAt(now.plusNanos(delayMs * 1_000_000));
+                    log.warn("Mail {} to {} failed (attempt {}), retrying in {} ms: {}",
+                            mailOutbox.getId(), mailOutbox.getRecipient(), attempts, delayMs, failure.getMessage());
+                }
+            }
+            updated.add(mailOutbox);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> mailOutboxRepository.saveAll(updated));
+    }
+
+    private MimeMessage toMimeMessage(MailOutbox mailOutbox) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "UTF-8");
+        helper.setSubject(mailOutbox.getSubject());
+        helper.setTo(mailOutbox.getRecipient());
+        helper.setFrom(mailOutbox.getSender());
+        helper.setText(mailOutbox.getBody(), mailOutbox.getHtml());
+        return mimeMessage;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdown();
+    }
+
+}
@@ -0,0 +1,24 @@
+package co.istad.mbanking.features.mail;
+
+import co.istad.mbanking.domain.MailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    // Due messages, oldest first, including SENDING rows whose claim expired (worker died mid-send).
+    // Rows locked by another dispatcher are skipped instead of waited on
+    @Query(value = """
+            SELECT * FROM mail_outbox
+            WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now
+            ORDER BY next_attempt_at, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<MailOutbox> findDueForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+}
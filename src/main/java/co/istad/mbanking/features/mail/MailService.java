@@ -0,0 +1,8 @@
+package co.istad.mbanking.features.mail;
+
+public interface MailService {
+
+    // Store a message in the outbox as part of the caller's transaction; it is delivered after commit
+    void enqueue(String recipient, String subject, String body, boolean html);
+
+}
@@ -0,0 +1,39 @@
+package co.istad.mbanking.features.mail;
+
+import co.istad.mbanking.domain.MailOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+public class MailServiceImpl implements MailService {
+
+    private final MailOutboxRepository mailOutboxRepository;
+
+    @Value("${spring.mail.username}")
+    private String mailUsername;
+
+    @Transactional
+    @Override
+    public void enqueue(String recipient, String subject, String body, boolean html) {
+        LocalDateTime now = LocalDateTime.now();
+
+        MailOutbox mailOutbox = new MailOutbox();
+        mailOutbox.setRecipient(recipient);
+        mailOutbox.setSender(mailUsername);
+        mailOutbox.setSubject(subject);
+        mailOutbox.setBody(body);
+        mailOutbox.setHtml(html);
+        mailOutbox.setStatus("PENDING");
+        mailOutbox.setAttempts(0);
+        mailOutbox.setNextAttemptAt(now);
+        mailOutbox.setCreatedAt(now);
+
+        mailOutboxRepository.save(mailOutbox);
+    }
+
+}
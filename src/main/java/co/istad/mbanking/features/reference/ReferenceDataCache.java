@@ -0,0 +1,148 @@
+package co.istad.mbanking.features.reference;
+
+import co.istad.mbanking.domain.AccountType;
+import co.istad.mbanking.domain.CardType;
+import co.istad.mbanking.domain.Role;
+import co.istad.mbanking.features.account.AccountTypeRepository;
+import co.istad.mbanking.features.auth.RoleRepository;
+import co.istad.mbanking.features.card.CardTypeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory snapshot of account types, card types and roles: a handful of rows read on every
+ * account creation, card creation and registration. Lookups read the current snapshot without
+ * touching the database; writes through the owning services call refresh(), which swaps in a
+ * freshly loaded snapshot and, when enabled, tells the other nodes over LISTEN/NOTIFY.
+ */
+@Component
+@Slf4j
+public class ReferenceDataCache {
+
+    static final String CHANNEL = "mbanking_reference_data";
+
+    private final AccountTypeRepository accountTypeRepository;
+    private final CardTypeRepository cardTypeRepository;
+    private final RoleRepository roleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean notifyEnabled;
+
+    // Identifies this node's own notifications, which the listener skips
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // ReentrantLock rather than synchronized, so a virtual thread reloading does not pin its carrier
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile ReferenceDataSnapshot snapshot;
+
+    public ReferenceDataCache(AccountTypeRepository accountTypeRepository,
+                              CardTypeRepository cardTypeRepository,
+                              RoleRepository roleRepository,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${mbanking.reference-data.notify.enabled:false}") boolean notifyEnabled) {
+        this.accountTypeRepository = accountTypeRepository;
+        this.cardTypeRepository = cardTypeRepository;
+        this.roleRepository = roleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.notifyEnabled = notifyEnabled;
+    }
+
+    // Loaded once the seed data (DataInit) is in place; anything earlier loads it on first use
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    public List<AccountType> findAllAccountTypes() {
+        return snapshot().accountTypes();
+    }
+
+    public Optional<AccountType> findAccountTypeByAlias(String alias) {
+        return Optional.ofNullable(alias).map(snapshot().accountTypesByAlias()::get);
+    }
+
+    public List<CardType> findAllCardTypes() {
+        return snapshot().cardTypes();
+    }
+
+    public Optional<CardType> findCardTypeByAlias(String alias) {
+        return Optional.ofNullable(alias).map(snapshot().cardTypesByAlias()::get);
+    }
+
+    public boolean existsCardTypeById(Integer id) {
+        return id != null && snapshot().cardTypesById().containsKey(id);
+    }
+
+    public Optional<Role> findRoleById(Integer id) {
+        return Optional.ofNullable(id).map(snapshot().rolesById()::get);
+    }
+
+    public Optional<Role> findRoleByName(String name) {
+        return Optional.ofNullable(name).map(snapshot().rolesByName()::get);
+    }
+
+    // Call after writing reference data; inside a transaction the reload waits for the commit
+    public void refresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadAndNotify();
+                }
+            });
+        } else {
+            reloadAndNotify();
+        }
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    void reload() {
+        reloadLock.lock();
+        try {
+            snapshot = ReferenceDataSnapshot.of(
+                    accountTypeRepository.findAll(),
+                    cardTypeRepository.findAll(),
+                    roleRepository.findAll());
+            log.debug("Reference data reloaded: {} account types, {} card types, {} roles",
+                    snapshot.accountTypes().size(), snapshot.cardTypes().size(), snapshot.rolesById().size());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void reloadAndNotify() {
+        reload();
+
+        if (notifyEnabled) {
+            try {
+                jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, nodeId);
+            } catch (RuntimeException e) {
+                // Other nodes catch up on their next reconnect or write
+                log.warn("Failed to publish reference data change: {}", e.getMessage());
+            }
+        }
+    }
+
+    private ReferenceDataSnapshot snapshot() {
+        ReferenceDataSnapshot current = snapshot;
+        if (current == null) {
+            reload();
+            current = snapshot;
+        }
+        return current;
+    }
+
+}
@@ -0,0 +1,99 @@
+package co.istad.mbanking.features.reference;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Keeps one pooled connection LISTENing on the reference data channel and reloads the cache
+ * when another node announces a change. After a reconnect the cache is reloaded unconditionally,
+ * since notifications sent while disconnected are lost.
+ */
+@Component
+@ConditionalOnProperty(name = "mbanking.reference-data.notify.enabled", havingValue = "true")
+@Slf4j
+public class ReferenceDataNotificationListener implements DisposableBean {
+
+    private final ReferenceDataCache referenceDataCache;
+    private final DataSource dataSource;
+    private final int pollTimeoutMs;
+    private final long reconnectDelayMs;
+
+    private volatile boolean running = true;
+    private Thread listener;
+
+    public ReferenceDataNotificationListener(ReferenceDataCache referenceDataCache,
+                                             DataSource dataSource,
+                                             @Value("${mbanking.reference-data.notify.poll-timeout-ms:5000}") int pollTimeoutMs,
+                                             @Value("${mbanking.reference-data.notify.reconnect-delay-ms:5000}") long reconnectDelayMs) {
+        this.referenceDataCache = referenceDataCache;
+        this.dataSource = dataSource;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        listener = Thread.ofVirtual().name("reference-data-listener").start(this::listen);
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + ReferenceDataCache.CHANNEL);
+                }
+
+                referenceDataCache.reload();
+
+                try {
+                    while (running) {
+                        PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                        if (notifications != null && Arrays.stream(notifications)
+                                .anyMatch(notification -> !referenceDataCache.getNodeId().equals(notification.getParameter()))) {
+                            referenceDataCache.reload();
+                        }
+                    }
+                } finally {
+                    // The connection goes back to the pool, so it must stop listening
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("UNLISTEN *");
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Reference data listener disconnected, retrying in {} ms: {}", reconnectDelayMs, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+}
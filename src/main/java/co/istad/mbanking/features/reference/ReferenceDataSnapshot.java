@@ -0,0 +1,47 @@
+package co.istad.mbanking.features.reference;
+
+import co.istad.mbanking.domain.AccountType;
+import co.istad.mbanking.domain.CardType;
+import co.istad.mbanking.domain.Role;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One immutable generation of reference data. Entities are detached; they may be used as
+ * association targets and mapped to responses, but must never be modified.
+ */
+record ReferenceDataSnapshot(List<AccountType> accountTypes,
+                             Map<String, AccountType> accountTypesByAlias,
+                             List<CardType> cardTypes,
+                             Map<String, CardType> cardTypesByAlias,
+                             Map<Integer, CardType> cardTypesById,
+                             Map<Integer, Role> rolesById,
+                             Map<String, Role> rolesByName) {
+
+    static ReferenceDataSnapshot of(List<AccountType> accountTypes, List<CardType> cardTypes, List<Role> roles) {
+        List<AccountType> sortedAccountTypes = accountTypes.stream()
+                .sorted(Comparator.comparing(AccountType::getId))
+                .toList();
+        List<CardType> sortedCardTypes = cardTypes.stream()
+                .sorted(Comparator.comparing(CardType::getId))
+                .toList();
+
+        return new ReferenceDataSnapshot(
+                sortedAccountTypes,
+                index(sortedAccountTypes, AccountType::getAlias),
+                sortedCardTypes,
+                index(sortedCardTypes, CardType::getAlias),
+                index(sortedCardTypes, CardType::getId),
+                index(roles, Role::getId),
+                index(roles, Role::getName));
+    }
+
+    private static <K, V> Map<K, V> index(List<V> values, Function<V, K> key) {
+        return Map.copyOf(values.stream().collect(Collectors.toMap(key, Function.identity())));
+    }
+
+}
@@ -0,0 +1,42 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.domain.AccountBalanceShard;
+import co.istad.mbanking.features.transaction.dto.ShardCreditRow;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+public interface AccountBalanceShardRepository extends JpaRepository<AccountBalanceShard, Integer> {
+
+    // Add to one shard row, creating it on first use; only that shard row is locked
+    @Modifying
+    @Query(value = """
+            INSERT INTO account_balance_shards (account_id, shard_no, balance)
+            VALUES (:accountId, :shardNo, :amount)
+            ON CONFLICT (account_id, shard_no)
+            DO UPDATE SET balance = account_balance_shards.balance + EXCLUDED.balance
+            """, nativeQuery = true)
+    int credit(@Param("accountId") Integer accountId,
+               @Param("shardNo") Integer shardNo,
+               @Param("amount") BigDecimal amount);
+
+    @Query("SELECT s.account.id AS accountId, SUM(s.balance) AS credits FROM AccountBalanceShard s " +
+           "WHERE s.account.id IN :accountIds GROUP BY s.account.id")
+    List<ShardCreditRow> sumCreditsByAccountIdIn(@Param("accountIds") Collection<Integer> accountIds);
+
+    // Dirty accounts for the consolidator, served by the partial index on non-zero shards
+    @Query("SELECT DISTINCT s.account.id FROM AccountBalanceShard s WHERE s.balance <> 0")
+    List<Integer> findAccountIdsWithCredits();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceShard s WHERE s.account.id = :accountId ORDER BY s.shardNo")
+    List<AccountBalanceShard> findAllByAccountIdForUpdate(@Param("accountId") Integer accountId);
+
+}
@@ -0,0 +1,136 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.domain.Account;
+import co.istad.mbanking.features.account.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs balance mutations (transfer, payment, deposit, withdraw) in their own transaction.
+ * In pessimistic mode the accounts are row-locked and the work runs once.
+ * In optimistic mode the accounts are read without locks, Account.version is checked on commit,
+ * and a conflicting transaction is retried with jittered exponential backoff.
+ */
+@Component
+@Slf4j
+public class BalanceMutationExecutor {
+
+    public enum ConcurrencyMode {
+        PESSIMISTIC,
+        OPTIMISTIC
+    }
+
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrencyMode concurrencyMode;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    private final Counter conflictCounter;
+    private final Counter retryCounter;
+    private final Counter exhaustedCounter;
+
+    public BalanceMutationExecutor(AccountRepository accountRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${mbanking.transaction.concurrency-mode:pessimistic}") String concurrencyMode,
+                                   @Value("${mbanking.transaction.optimistic.max-attempts:5}") int maxAttempts,
+                                   @Value("${mbanking.transaction.optimistic.backoff-ms:10}") long backoffMillis) {
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.concurrencyMode = ConcurrencyMode.valueOf(concurrencyMode.trim().toUpperCase());
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(1, backoffMillis);
+
+        this.conflictCounter = Counter.builder("mbanking.transaction.optimistic.conflicts")
+                .description("Balance mutations that failed the Account version check")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("mbanking.transaction.optimistic.retries")
+                .description("Balance mutations retried after a version conflict")
+                .register(meterRegistry);
+        this.exhaustedCounter = Counter.builder("mbanking.transaction.optimistic.exhausted")
+                .description("Balance mutations rejected after running out of retry attempts")
+                .register(meterRegistry);
+
+        log.info("Balance mutation concurrency mode: {}", this.concurrencyMode);
+    }
+
+    public boolean isPessimistic() {
+        return concurrencyMode == ConcurrencyMode.PESSIMISTIC;
+    }
+
+    public <T> T execute(Supplier<T> mutation) {
+        if (isPessimistic()) {
+            return transactionTemplate.execute(status -> mutation.get());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> mutation.get());
+            } catch (OptimisticLockingFailureException e) {
+                conflictCounter.increment();
+
+                if (attempt >= maxAttempts) {
+                    exhaustedCounter.increment();
+                    log.warn("Balance mutation gave up after {} attempts: {}", attempt, e.getMessage());
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Account is busy, please try again");
+                }
+
+                retryCounter.increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Load the accounts a balance mutation is about to change.
+     * In pessimistic mode the rows are locked with SELECT ... FOR UPDATE in ascending id order.
+     * Transfers and payments only lock the debited account (credits are insert-only ledger entries),
+     * so two transfers going A to B and B to A at the same time never hold more than one lock each.
+     * In optimistic mode the rows are read without locks and Account.version is checked on commit.
+     */
+    public Map<Integer, Account> loadAccountsForUpdate(Integer... accountIds) {
+        List<Integer> ids = Arrays.stream(accountIds).distinct().toList();
+
+        List<Account> accounts = isPessimistic()
+                ? accountRepository.findAllByIdForUpdate(ids)
+                : accountRepository.findAllById(ids);
+
+        if (accounts.size() != ids.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account doesn't exist");
+        }
+
+        return accounts.stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+    }
+
+    // Full jitter: sleep a random time in [0, backoff * 2^(attempt - 1)]
+    private void backOff(int attempt) {
+        long ceiling = backoffMillis << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Transaction was interrupted");
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.domain.Account;
+import co.istad.mbanking.domain.AccountBalanceShard;
+import co.istad.mbanking.features.account.AccountRepository;
+import co.istad.mbanking.features.transaction.dto.ShardCreditRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Credits go to rows in account_balance_shards instead of accounts.balance, so a transaction never
+ * locks or updates the credited account row and payers queue at most on one shard row.
+ * Designated hot receivers (merchants, billers) spread their credits over N shards, every other
+ * account uses a single one. A scheduled consolidator folds the shards back into Account.balance
+ * under the debit lock. Reads that report or check a balance load the unfolded part into
+ * Account.pendingCredits first, with one query for any number of accounts.
+ */
+@Service
+@Slf4j
+public class BalanceShardService {
+
+    private final AccountRepository accountRepository;
+    private final AccountBalanceShardRepository accountBalanceShardRepository;
+    private final BalanceMutationExecutor balanceMutationExecutor;
+
+    private final Set<String> shardedActNos;
+    private final int shardCount;
+
+    public BalanceShardService(AccountRepository accountRepository,
+                               AccountBalanceShardRepository accountBalanceShardRepository,
+                               BalanceMutationExecutor balanceMutationExecutor,
+                               @Value("${mbanking.transaction.sharded-balance.accounts:}") Set<String> shardedActNos,
+                               @Value("${mbanking.transaction.sharded-balance.shard-count:16}") int shardCount) {
+        this.accountRepository = accountRepository;
+        this.accountBalanceShardRepository = accountBalanceShardRepository;
+        this.balanceMutationExecutor = balanceMutationExecutor;
+        this.shardedActNos = Set.copyOf(shardedActNos);
+        this.shardCount = Math.max(1, shardCount);
+    }
+
+    public boolean isSharded(String actNo) {
+        return actNo != null && shardedActNos.contains(actNo);
+    }
+
+    // Must run inside the caller's transaction; only the chosen shard row is locked
+    public void credit(Integer accountId, String actNo, BigDecimal amount) {
+        int shardNo = isSharded(actNo) ? ThreadLocalRandom.current().nextInt(shardCount) : 0;
+        accountBalanceShardRepository.credit(accountId, shardNo, amount);
+    }
+
+    public void loadPendingCredits(Account... accounts) {
+        loadPendingCredits(Arrays.asList(accounts));
+    }
+
+    // Sets every account's pendingCredits, zero when it has no shards
+    public void loadPendingCredits(Collection<Account> accounts) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, BigDecimal> credits = accountBalanceShardRepository
+                .sumCreditsByAccountIdIn(accounts.stream().map(Account::getId).toList()).stream()
+                .collect(Collectors.toMap(ShardCreditRow::getAccountId, ShardCreditRow::getCredits));
+
+        accounts.forEach(account -> account.setPendingCredits(credits.getOrDefault(account.getId(), BigDecimal.ZERO)));
+    }
+
+    /**
+     * Fold the shards of every account holding unfolded credits.
+     * A debit never folds: it reads the shards without locking them, which can only miss credits
+     * that commit later, so its balance check errs on the safe side and cannot deadlock with a credit.
+     */
+    @Scheduled(fixedDelayString = "${mbanking.transaction.sharded-balance.consolidate-interval-ms:5000}")
+    public void consolidate() {
+        for (Integer accountId : accountBalanceShardRepository.findAccountIdsWithCredits()) {
+            try {
+                balanceMutationExecutor.execute(() -> {
+                    fold(balanceMutationExecutor.loadAccountsForUpdate(accountId).get(accountId));
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.warn("Failed to consolidate balance shards of account {}: {}", accountId, e.getMessage());
+            }
+        }
+    }
+
+    // The account must already be loaded through BalanceMutationExecutor.loadAccountsForUpdate
+    private void fold(Account account) {
+        List<AccountBalanceShard> shards = accountBalanceShardRepository.findAllByAccountIdForUpdate(account.getId());
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (AccountBalanceShard shard : shards) {
+            total = total.add(shard.getBalance());
+            shard.setBalance(BigDecimal.ZERO);
+        }
+
+        if (total.signum() != 0) {
+            account.setBalance(account.getBalance().add(total));
+            accountRepository.save(account);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.domain.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    // 1 when the key is new (or its previous use expired) and this transaction now owns it, 0 when it is taken.
+    // A concurrent duplicate blocks on the unique index until the owner commits or rolls back
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (user_id, idempotency_key, operation, request_hash, created_at, expires_at)
+            VALUES (:userId, :idempotencyKey, :operation, :requestHash, :now, :expiresAt)
+            ON CONFLICT (user_id, idempotency_key) DO UPDATE
+            SET operation = EXCLUDED.operation, request_hash = EXCLUDED.request_hash, response = NULL,
+                created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at
+            WHERE idempotency_keys.expires_at < :now
+            """, nativeQuery = true)
+    int claim(@Param("userId") Integer userId,
+              @Param("idempotencyKey") String idempotencyKey,
+              @Param("operation") String operation,
+              @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    Optional<IdempotencyKey> findByUserIdAndIdempotencyKey(Integer userId, String idempotencyKey);
+
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.response = :response " +
+           "WHERE k.userId = :userId AND k.idempotencyKey = :idempotencyKey")
+    int complete(@Param("userId") Integer userId,
+                 @Param("idempotencyKey") String idempotencyKey,
+                 @Param("response") String response);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+}
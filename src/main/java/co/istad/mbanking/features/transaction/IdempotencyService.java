@@ -0,0 +1,128 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.domain.IdempotencyKey;
+import co.istad.mbanking.features.transaction.dto.TransactionResponse;
+import co.istad.mbanking.security.CurrentUserUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for money-moving requests.
+ * The key is claimed inside the same transaction as the ledger write, so a replay either sees
+ * the committed response or (if the first attempt rolled back) executes once itself.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final CurrentUserUtil currentUserUtil;
+    private final ObjectMapper objectMapper;
+    private final long ttlHours;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              CurrentUserUtil currentUserUtil,
+                              ObjectMapper objectMapper,
+                              @Value("${mbanking.transaction.idempotency.ttl-hours:24}") long ttlHours) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.currentUserUtil = currentUserUtil;
+        this.objectMapper = objectMapper;
+        this.ttlHours = ttlHours;
+    }
+
+    /**
+     * Run the action once per (user, key); replays get the stored response.
+     * Must run inside the caller's transaction, before any account row is locked.
+     */
+    public TransactionResponse execute(String idempotencyKey, String operation, Object request,
+                                       Supplier<TransactionResponse> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        Integer userId = currentUserUtil.getCurrentUserId();
+        String requestHash = hash(operation, request);
+        LocalDateTime now = LocalDateTime.now();
+
+        int claimed = idempotencyKeyRepository.claim(userId, idempotencyKey, operation, requestHash,
+                now, now.plusHours(ttlHours));
+        if (claimed == 1) {
+            TransactionResponse response = action.get();
+            idempotencyKeyRepository.complete(userId, idempotencyKey, toJson(response));
+            return response;
+        }
+
+        return replay(userId, idempotencyKey, operation, requestHash);
+    }
+
+    private TransactionResponse replay(Integer userId, String idempotencyKey, String operation, String requestHash) {
+        IdempotencyKey stored = idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Request with this Idempotency-Key is being processed, please retry"));
+
+        if (!stored.getOperation().equals(operation) || !stored.getRequestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different request");
+        }
+        if (stored.getResponse() == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Request with this Idempotency-Key is being processed, please retry");
+        }
+
+        log.info("Replaying {} for Idempotency-Key {} of user {}", operation, idempotencyKey, userId);
+        try {
+            return objectMapper.readValue(stored.getResponse(), TransactionResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is unreadable", e);
+        }
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${mbanking.transaction.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(TransactionResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
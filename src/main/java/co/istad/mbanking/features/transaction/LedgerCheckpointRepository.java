@@ -0,0 +1,18 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.domain.LedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpoint, Integer> {
+
+    Optional<LedgerCheckpoint> findByAccountId(Integer accountId);
+
+    // Mark of the latest checkpoint run: every run moves its accounts to the same upTo
+    @Query("SELECT MAX(c.checkpointUntil) FROM LedgerCheckpoint c")
+    Optional<LocalDateTime> findLatestCheckpointUntil();
+
+}
@@ -0,0 +1,33 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.domain.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    // Credits minus debits of an account in (after, upTo]
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.side = 'CREDIT' THEN e.amount ELSE -e.amount END), 0) " +
+           "FROM LedgerEntry e WHERE e.account.id = :accountId AND e.entryAt > :after AND e.entryAt <= :upTo")
+    BigDecimal netFlowBetween(@Param("accountId") Integer accountId,
+                              @Param("after") LocalDateTime after,
+                              @Param("upTo") LocalDateTime upTo);
+
+    // Credits minus debits of an account after the given moment
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.side = 'CREDIT' THEN e.amount ELSE -e.amount END), 0) " +
+           "FROM LedgerEntry e WHERE e.account.id = :accountId AND e.entryAt > :after")
+    BigDecimal netFlowAfter(@Param("accountId") Integer accountId,
+                            @Param("after") LocalDateTime after);
+
+    // Accounts with entries in (after, upTo], a range scan of the entry_at index
+    @Query("SELECT DISTINCT e.account.id FROM LedgerEntry e " +
+           "WHERE e.account IS NOT NULL AND e.entryAt > :after AND e.entryAt <= :upTo")
+    List<Integer> findAccountIdsWithEntriesBetween(@Param("after") LocalDateTime after,
+                                                   @Param("upTo") LocalDateTime upTo);
+
+}
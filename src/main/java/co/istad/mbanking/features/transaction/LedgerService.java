@@ -0,0 +1,176 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.base.BasedTransactionType;
+import co.istad.mbanking.domain.Account;
+import co.istad.mbanking.domain.LedgerCheckpoint;
+import co.istad.mbanking.domain.LedgerEntry;
+import co.istad.mbanking.domain.Transaction;
+import co.istad.mbanking.features.account.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append-only double-entry ledger written next to every transaction row.
+ * The credited account row is never locked or updated by a transaction: credits land in balance
+ * shards (see BalanceShardService), so an account's balance is accounts.balance plus its unfolded shards.
+ * A periodic checkpoint per account rebuilds that balance from the ledger alone and verifies it.
+ */
+@Service
+@Slf4j
+public class LedgerService {
+
+    private static final String CASH = "CASH";
+
+    // Lower bound for the first checkpoint run, before any entry
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerCheckpointRepository ledgerCheckpointRepository;
+    private final AccountRepository accountRepository;
+    private final BalanceShardService balanceShardService;
+    private final TransactionTemplate repeatableReadTemplate;
+    private final Counter mismatchCounter;
+    private final long checkpointLagSeconds;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository,
+                         LedgerCheckpointRepository ledgerCheckpointRepository,
+                         AccountRepository accountRepository,
+                         BalanceShardService balanceShardService,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${mbanking.ledger.checkpoint-lag-seconds:300}") long checkpointLagSeconds) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerCheckpointRepository = ledgerCheckpointRepository;
+        this.accountRepository = accountRepository;
+        this.balanceShardService = balanceShardService;
+        this.checkpointLagSeconds = checkpointLagSeconds;
+        this.mismatchCounter = Counter.builder("mbanking.ledger.mismatches")
+                .description("Accounts whose balance differs from the balance rebuilt from the ledger")
+                .register(meterRegistry);
+
+        // Account balances and ledger entries must come from the same database snapshot
+        this.repeatableReadTemplate = new TransactionTemplate(transactionManager);
+        this.repeatableReadTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    // Must run inside the caller's transaction, after the transaction rows are saved
+    public void record(Transaction transaction) {
+        record(List.of(transaction));
+    }
+
+    // Both entries of every transaction, inserted with JDBC batching
+    public void record(List<Transaction> transactions) {
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+
+        for (Transaction transaction : transactions) {
+            BasedTransactionType type = BasedTransactionType.valueOf(transaction.getTransactionType());
+            switch (type) {
+                case DEPOSIT -> {
+                    entries.add(entry(transaction, "DEBIT", null, CASH));
+                    entries.add(entry(transaction, "CREDIT", transaction.getOwner(), null));
+                }
+                case WITHDRAW -> {
+                    entries.add(entry(transaction, "DEBIT", transaction.getOwner(), null));
+                    entries.add(entry(transaction, "CREDIT", null, CASH));
+                }
+                case TRANSFER, PAYMENT -> {
+                    entries.add(entry(transaction, "DEBIT", transaction.getOwner(), null));
+                    entries.add(transaction.getReceiver() != null
+                            ? entry(transaction, "CREDIT", transaction.getReceiver(), null)
+                            : entry(transaction, "CREDIT", null, transaction.getPaymentReceiver()));
+                }
+            }
+        }
+
+        ledgerEntryRepository.saveAll(entries);
+    }
+
+    // Balance rebuilt from the ledger, or empty when the account has no checkpoint yet
+    public Optional<BigDecimal> derivedBalance(Integer accountId) {
+        return ledgerCheckpointRepository.findByAccountId(accountId)
+                .map(checkpoint -> checkpoint.getBalance()
+                        .add(ledgerEntryRepository.netFlowAfter(accountId, checkpoint.getCheckpointUntil())));
+    }
+
+    /**
+     * Move the checkpoint of every account with new entries forward and verify its balance.
+     * Entries younger than the lag are left for the next run, so a slow transaction committing
+     * an older entry_at can never land behind a checkpoint.
+     * Only entries after the previous run's mark are scanned for accounts to visit; an account whose
+     * checkpoint failed is visited again with its next entry and catches up from its own mark.
+     */
+    @Scheduled(fixedDelayString = "${mbanking.ledger.checkpoint-interval-ms:600000}")
+    public void checkpoint() {
+        LocalDateTime upTo = LocalDateTime.now().minusSeconds(checkpointLagSeconds);
+        LocalDateTime after = ledgerCheckpointRepository.findLatestCheckpointUntil().orElse(LEDGER_START);
+        List<Integer> accountIds = ledgerEntryRepository.findAccountIdsWithEntriesBetween(after, upTo);
+
+        for (Integer accountId : accountIds) {
+            try {
+                repeatableReadTemplate.executeWithoutResult(status -> checkpoint(accountId, upTo));
+            } catch (RuntimeException e) {
+                log.warn("Failed to checkpoint ledger of account {}: {}", accountId, e.getMessage());
+            }
+        }
+    }
+
+    private void checkpoint(Integer accountId, LocalDateTime upTo) {
+        Account account = accountRepository.findById(accountId).orElse(null);
+        if (account == null) {
+            return;
+        }
+
+        // Folded balance and shard credits are read from the same snapshot
+        balanceShardService.loadPendingCredits(account);
+        BigDecimal currentBalance = account.getAvailableBalance();
+
+        LedgerCheckpoint checkpoint = ledgerCheckpointRepository.findByAccountId(accountId).orElse(null);
+        if (checkpoint == null) {
+            // First checkpoint: opening balances predate the ledger, so seed from the current balance
+            checkpoint = new LedgerCheckpoint();
+            checkpoint.setAccount(account);
+            checkpoint.setBalance(currentBalance.subtract(ledgerEntryRepository.netFlowAfter(accountId, upTo)));
+            checkpoint.setCheckpointUntil(upTo);
+            ledgerCheckpointRepository.save(checkpoint);
+            return;
+        }
+
+        BigDecimal derivedBalance = checkpoint.getBalance()
+                .add(ledgerEntryRepository.netFlowAfter(accountId, checkpoint.getCheckpointUntil()));
+        if (derivedBalance.compareTo(currentBalance) != 0) {
+            mismatchCounter.increment();
+            log.error("Ledger mismatch on account {}: balance {} but ledger gives {}",
+                    account.getActNo(), currentBalance, derivedBalance);
+        }
+
+        checkpoint.setBalance(checkpoint.getBalance()
+                .add(ledgerEntryRepository.netFlowBetween(accountId, checkpoint.getCheckpointUntil(), upTo)));
+        checkpoint.setCheckpointUntil(upTo);
+        ledgerCheckpointRepository.save(checkpoint);
+    }
+
+    private static LedgerEntry entry(Transaction transaction, String side, Account account, String counterparty) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setTransaction(transaction);
+        entry.setSide(side);
+        entry.setAccount(account);
+        entry.setCounterparty(counterparty);
+        entry.setAmount(transaction.getAmount());
+        entry.setEntryAt(transaction.getTransactionAt());
+        return entry;
+    }
+
+}
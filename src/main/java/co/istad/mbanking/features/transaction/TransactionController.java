@@ -4,6 +4,8 @@ import co.istad.mbanking.exception.ApiResponse;
 import co.istad.mbanking.features.account.dto.AccountDetailResponse;
 import co.istad.mbanking.features.account.dto.DepositRequest;
 import co.istad.mbanking.features.account.dto.WithdrawRequest;
+import co.istad.mbanking.features.transaction.dto.BatchTransferRequest;
+import co.istad.mbanking.features.transaction.dto.BatchTransferResponse;
 import co.istad.mbanking.features.transaction.dto.PaymentRequest;
 import co.istad.mbanking.features.transaction.dto.TransactionHistoryResponse;
 import co.istad.mbanking.features.transaction.dto.TransactionResponse;
@@ -11,11 +13,17 @@ import co.istad.mbanking.features.transaction.dto.TransferRequest;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/v1/transactions")
@@ -28,8 +36,9 @@ public class TransactionController {
     @PreAuthorize("hasAuthority('ROLE_USER')")
     @PostMapping("/transfers")
     public ResponseEntity<ApiResponse<TransactionResponse>> transfer(@Valid @RequestBody TransferRequest transferRequest,
+                                                                     @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                                                      Authentication auth) {
-        TransactionResponse response = transactionService.transfer(transferRequest, auth);
+        TransactionResponse response = transactionService.transfer(transferRequest, auth, idempotencyKey);
 
         ApiResponse<TransactionResponse> apiResponse = ApiResponse.<TransactionResponse>builder()
                 .success(true)
@@ -41,11 +50,28 @@ public class TransactionController {
         return ResponseEntity.status(HttpStatus.CREATED).body(apiResponse);
     }
 
+    @PreAuthorize("hasAuthority('ROLE_USER')")
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<ApiResponse<BatchTransferResponse>> batchTransfer(@Valid @RequestBody BatchTransferRequest batchTransferRequest,
+                                                                           Authentication auth) {
+        BatchTransferResponse response = transactionService.batchTransfer(batchTransferRequest, auth);
+
+        ApiResponse<BatchTransferResponse> apiResponse = ApiResponse.<BatchTransferResponse>builder()
+                .success(true)
+                .message("Batch transfer processed")
+                .status(HttpStatus.CREATED)
+                .payload(response)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(apiResponse);
+    }
+
     @PreAuthorize("hasAuthority('ROLE_USER')")
     @PostMapping("/payments")
     public ResponseEntity<ApiResponse<TransactionResponse>> payment(@Valid @RequestBody PaymentRequest paymentRequest,
+                                                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                                                     Authentication auth) {
-        TransactionResponse response = transactionService.payment(paymentRequest, auth);
+        TransactionResponse response = transactionService.payment(paymentRequest, auth, idempotencyKey);
 
         ApiResponse<TransactionResponse> apiResponse = ApiResponse.<TransactionResponse>builder()
                 .success(true)
@@ -97,10 +123,16 @@ public class TransactionController {
             @PathVariable String actNo,
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(required = false) String transactionType) {
+            @RequestParam(required = false) String transactionType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
 
         TransactionHistoryResponse response;
-        if (transactionType != null && !transactionType.isEmpty()) {
+        if (cursor != null || limit != null) {
+            // Keyset mode: same cost for every page, no total pages
+            response = transactionService.getTransactionHistoryByAccount(actNo, cursor,
+                    limit != null ? limit : size, emptyToNull(transactionType));
+        } else if (transactionType != null && !transactionType.isEmpty()) {
             response = transactionService.getTransactionHistoryByAccount(actNo, page, size, transactionType);
         } else {
             response = transactionService.getTransactionHistoryByAccount(actNo, page, size);
@@ -145,10 +177,16 @@ public class TransactionController {
     public ResponseEntity<ApiResponse<TransactionHistoryResponse>> getCurrentUserTransactionHistory(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(required = false) String transactionType) {
+            @RequestParam(required = false) String transactionType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
 
         TransactionHistoryResponse response;
-        if (transactionType != null && !transactionType.isEmpty()) {
+        if (cursor != null || limit != null) {
+            // Keyset mode: same cost for every page, no total pages
+            response = transactionService.getCurrentUserTransactionHistory(cursor,
+                    limit != null ? limit : size, emptyToNull(transactionType));
+        } else if (transactionType != null && !transactionType.isEmpty()) {
             response = transactionService.getCurrentUserTransactionHistory(page, size, transactionType);
         } else {
             response = transactionService.getCurrentUserTransactionHistory(page, size);
@@ -163,4 +201,34 @@ public class TransactionController {
 
         return ResponseEntity.ok(apiResponse);
     }
+
+    @PreAuthorize("hasAnyAuthority('ROLE_STAFF', 'ROLE_MANAGER', 'ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String actNo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String transactionType) {
+
+        TransactionExportFormat exportFormat = TransactionExportFormat.of(format);
+        StreamingResponseBody body = transactionService.exportTransactions(
+                emptyToNull(actNo),
+                from != null ? from : LocalDate.EPOCH,
+                to != null ? to : LocalDate.now(),
+                emptyToNull(transactionType),
+                exportFormat);
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
 }
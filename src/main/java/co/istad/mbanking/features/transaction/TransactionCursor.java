@@ -0,0 +1,42 @@
+package co.istad.mbanking.features.transaction;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for transaction history, pointing at the last (transactionAt, id) returned.
+ * The next page is everything strictly older than this position in (transactionAt DESC, id DESC) order.
+ */
+record TransactionCursor(LocalDateTime transactionAt, Integer id) {
+
+    // Position before the newest possible transaction, used when no cursor is given
+    private static final TransactionCursor START =
+            new TransactionCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Integer.MAX_VALUE);
+
+    static TransactionCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            return new TransactionCursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    Integer.valueOf(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    String encode() {
+        String raw = transactionAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
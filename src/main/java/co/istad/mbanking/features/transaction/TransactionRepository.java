@@ -1,44 +1,209 @@
 package co.istad.mbanking.features.transaction;
 
 import co.istad.mbanking.domain.Transaction;
-import co.istad.mbanking.domain.User;
+import co.istad.mbanking.features.transaction.dto.AccountFlowRow;
+import co.istad.mbanking.features.transaction.dto.TransactionHistoryRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
 public interface TransactionRepository extends JpaRepository<Transaction, Integer> {
 
-    // Find transactions where the account is either the owner or receiver
-    @Query("SELECT t FROM Transaction t WHERE (t.owner.actNo = :actNo OR t.receiver.actNo = :actNo) AND t.isDeleted = false ORDER BY t.transactionAt DESC")
-    Page<Transaction> findTransactionHistoryByAccountNumber(String actNo, Pageable pageable);
+    // History reads project straight into TransactionHistoryRow: one query per page,
+    // no owner/receiver Account graphs (and their eager associations) are loaded
+
+    String ROW_COLUMNS = """
+            t.id AS "id", o.act_no AS "actNoOfOwner", r.act_no AS "actNoOfReceiver",
+            t.payment_receiver AS "paymentReceiver", t.amount AS "amount", t.remark AS "remark",
+            t.transaction_type AS "transactionType", t.transaction_at AS "transactionAt", t.status AS "status"
+            """;
+
+    String ROW_JOINS = """
+            LEFT JOIN accounts o ON o.id = t.owner_id
+            LEFT JOIN accounts r ON r.id = t.receiver_id
+            """;
+
+    String JPQL_ROW_SELECT = "SELECT t.id AS id, o.actNo AS actNoOfOwner, r.actNo AS actNoOfReceiver, " +
+            "t.paymentReceiver AS paymentReceiver, t.amount AS amount, t.remark AS remark, " +
+            "t.transactionType AS transactionType, t.transactionAt AS transactionAt, t.status AS status " +
+            "FROM Transaction t LEFT JOIN t.owner o LEFT JOIN t.receiver r ";
 
-    // Find transactions where the account is either the owner or receiver, filtered by transaction type
-    @Query("SELECT t FROM Transaction t WHERE (t.owner.actNo = :actNo OR t.receiver.actNo = :actNo) AND (:transactionType IS NULL OR t.transactionType = :transactionType) AND t.isDeleted = false ORDER BY t.transactionAt DESC")
-    Page<Transaction> findTransactionHistoryByAccountNumberAndType(@Param("actNo") String actNo, @Param("transactionType") String transactionType, Pageable pageable);
+    // Owner-side and receiver-side rows of one account, each served by its own partial index
+    // (see import.sql); deposit/withdraw rows have owner = receiver and are only taken from the owner side
+    String ACCOUNT_HISTORY = """
+            SELECT * FROM transactions
+            WHERE owner_id = :accountId AND is_deleted = false
+              AND (CAST(:transactionType AS VARCHAR) IS NULL OR transaction_type = :transactionType)
+            UNION ALL
+            SELECT * FROM transactions
+            WHERE receiver_id = :accountId AND owner_id <> :accountId AND is_deleted = false
+              AND (CAST(:transactionType AS VARCHAR) IS NULL OR transaction_type = :transactionType)
+            """;
+
+    // Find transactions where the account is either the owner or receiver, optionally filtered by transaction type
+    @Query(value = "SELECT " + ROW_COLUMNS + " FROM (" + ACCOUNT_HISTORY + ") t " + ROW_JOINS +
+                   "ORDER BY t.transaction_at DESC, t.id DESC",
+           countQuery = """
+                   SELECT (SELECT COUNT(*) FROM transactions
+                           WHERE owner_id = :accountId AND is_deleted = false
+                             AND (CAST(:transactionType AS VARCHAR) IS NULL OR transaction_type = :transactionType))
+                        + (SELECT COUNT(*) FROM transactions
+                           WHERE receiver_id = :accountId AND owner_id <> :accountId AND is_deleted = false
+                             AND (CAST(:transactionType AS VARCHAR) IS NULL OR transaction_type = :transactionType))
+                   """,
+           nativeQuery = true)
+    Page<TransactionHistoryRow> findTransactionHistoryByAccountId(@Param("accountId") Integer accountId,
+                                                                  @Param("transactionType") String transactionType,
+                                                                  Pageable pageable);
 
     // Find all transactions for admin/staff roles
-    @Query("SELECT t FROM Transaction t WHERE t.isDeleted = false ORDER BY t.transactionAt DESC")
-    Page<Transaction> findAllTransactions(Pageable pageable);
+    @Query(value = JPQL_ROW_SELECT + "WHERE t.isDeleted = false ORDER BY t.transactionAt DESC",
+           countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.isDeleted = false")
+    Page<TransactionHistoryRow> findAllTransactions(Pageable pageable);
 
     // Find all transactions for admin/staff roles, filtered by transaction type
-    @Query("SELECT t FROM Transaction t WHERE (:transactionType IS NULL OR t.transactionType = :transactionType) AND t.isDeleted = false ORDER BY t.transactionAt DESC")
-    Page<Transaction> findAllTransactionsByType(@Param("transactionType") String transactionType, Pageable pageable);
+    @Query(value = JPQL_ROW_SELECT +
+                   "WHERE (:transactionType IS NULL OR t.transactionType = :transactionType) AND t.isDeleted = false " +
+                   "ORDER BY t.transactionAt DESC",
+           countQuery = "SELECT COUNT(t) FROM Transaction t " +
+                        "WHERE (:transactionType IS NULL OR t.transactionType = :transactionType) AND t.isDeleted = false")
+    Page<TransactionHistoryRow> findAllTransactionsByType(@Param("transactionType") String transactionType, Pageable pageable);
 
     // Find all transactions for all accounts belonging to a specific user
-    @Query("SELECT t FROM Transaction t WHERE " +
-           "(t.owner.userAccount.user = :user OR t.receiver.userAccount.user = :user) " +
-           "AND t.isDeleted = false ORDER BY t.transactionAt DESC")
-    Page<Transaction> findTransactionHistoryByUser(User user, Pageable pageable);
+    @Query(value = JPQL_ROW_SELECT +
+                   "WHERE (o.userAccount.user.id = :userId OR r.userAccount.user.id = :userId) " +
+                   "AND t.isDeleted = false ORDER BY t.transactionAt DESC",
+           countQuery = "SELECT COUNT(t) FROM Transaction t LEFT JOIN t.owner o LEFT JOIN t.receiver r " +
+                        "WHERE (o.userAccount.user.id = :userId OR r.userAccount.user.id = :userId) AND t.isDeleted = false")
+    Page<TransactionHistoryRow> findTransactionHistoryByUser(@Param("userId") Integer userId, Pageable pageable);
 
     // Find all transactions for all accounts belonging to a specific user, filtered by transaction type
-    @Query("SELECT t FROM Transaction t WHERE " +
-           "(t.owner.userAccount.user = :user OR t.receiver.userAccount.user = :user) " +
-           "AND (:transactionType IS NULL OR t.transactionType = :transactionType) " +
-           "AND t.isDeleted = false ORDER BY t.transactionAt DESC")
-    Page<Transaction> findTransactionHistoryByUserAndType(
-           @Param("user") User user,
+    @Query(value = JPQL_ROW_SELECT +
+                   "WHERE (o.userAccount.user.id = :userId OR r.userAccount.user.id = :userId) " +
+                   "AND (:transactionType IS NULL OR t.transactionType = :transactionType) " +
+                   "AND t.isDeleted = false ORDER BY t.transactionAt DESC",
+           countQuery = "SELECT COUNT(t) FROM Transaction t LEFT JOIN t.owner o LEFT JOIN t.receiver r " +
+                        "WHERE (o.userAccount.user.id = :userId OR r.userAccount.user.id = :userId) " +
+                        "AND (:transactionType IS NULL OR t.transactionType = :transactionType) " +
+                        "AND t.isDeleted = false")
+    Page<TransactionHistoryRow> findTransactionHistoryByUserAndType(
+           @Param("userId") Integer userId,
            @Param("transactionType") String transactionType,
            Pageable pageable);
+
+    // Keyset page of an account's transactions older than (cursorAt, cursorId), newest first, no count query
+    @Query(value = "SELECT " + ROW_COLUMNS + """
+            FROM (
+                SELECT * FROM transactions
+                WHERE owner_id = :accountId AND is_deleted = false
+                  AND (CAST(:transactionType AS VARCHAR) IS NULL OR transaction_type = :transactionType)
+                  AND (transaction_at, id) < (:cursorAt, :cursorId)
+                UNION ALL
+                SELECT * FROM transactions
+                WHERE receiver_id = :accountId AND owner_id <> :accountId AND is_deleted = false
+                  AND (CAST(:transactionType AS VARCHAR) IS NULL OR transaction_type = :transactionType)
+                  AND (transaction_at, id) < (:cursorAt, :cursorId)
+            ) t
+            """ + ROW_JOINS + "ORDER BY t.transaction_at DESC, t.id DESC",
+           nativeQuery = true)
+    List<TransactionHistoryRow> findTransactionHistoryByAccountIdAfter(
+           @Param("accountId") Integer accountId,
+           @Param("transactionType") String transactionType,
+           @Param("cursorAt") LocalDateTime cursorAt,
+           @Param("cursorId") Integer cursorId,
+           Pageable pageable);
+
+    // Keyset page of a user's transactions older than (cursorAt, cursorId), newest first, no count query.
+    // Each of the user's accounts contributes at most :limit rows from its owner-side and receiver-side
+    // partial index; rows between two of the user's own accounts are only taken from the owner side
+    @Query(value = "SELECT " + ROW_COLUMNS + """
+            FROM (
+                SELECT h.* FROM user_accounts ua CROSS JOIN LATERAL (
+                    SELECT * FROM transactions
+                    WHERE owner_id = ua.account_id AND is_deleted = false
+                      AND (CAST(:transactionType AS VARCHAR) IS NULL OR transaction_type = :transactionType)
+                      AND (transaction_at, id) < (:cursorAt, :cursorId)
+                    ORDER BY transaction_at DESC, id DESC
+                    LIMIT :limit
+                ) h
+                WHERE ua.user_id = :userId
+                UNION ALL
+                SELECT h.* FROM user_accounts ua CROSS JOIN LATERAL (
+                    SELECT * FROM transactions
+                    WHERE receiver_id = ua.account_id AND is_deleted = false
+                      AND (owner_id IS NULL OR owner_id NOT IN (SELECT account_id FROM user_accounts WHERE user_id = :userId))
+                      AND (CAST(:transactionType AS VARCHAR) IS NULL OR transaction_type = :transactionType)
+                      AND (transaction_at, id) < (:cursorAt, :cursorId)
+                    ORDER BY transaction_at DESC, id DESC
+                    LIMIT :limit
+                ) h
+                WHERE ua.user_id = :userId
+            ) t
+            """ + ROW_JOINS + "ORDER BY t.transaction_at DESC, t.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<TransactionHistoryRow> findTransactionHistoryByUserAfter(
+           @Param("userId") Integer userId,
+           @Param("transactionType") String transactionType,
+           @Param("cursorAt") LocalDateTime cursorAt,
+           @Param("cursorId") Integer cursorId,
+           @Param("limit") int limit);
+
+    // Credits and debits of one account in [fromAt, toAt), from the same owner/receiver index ranges as the history.
+    // DEPOSIT credits and WITHDRAW debits the account itself; a payment to oneself counts on both sides
+    @Query(value = """
+            SELECT COALESCE(SUM(CASE WHEN t.side = 'R' OR t.transaction_type = 'DEPOSIT'
+                                          OR (t.receiver_id = :accountId AND t.transaction_type <> 'WITHDRAW')
+                                     THEN t.amount ELSE 0 END), 0) AS "credit",
+                   COALESCE(SUM(CASE WHEN t.side = 'O' AND t.transaction_type <> 'DEPOSIT'
+                                     THEN t.amount ELSE 0 END), 0) AS "debit"
+            FROM (
+                SELECT 'O' AS side, transaction_type, amount, receiver_id FROM transactions
+                WHERE owner_id = :accountId AND is_deleted = false AND status = true
+                  AND transaction_at >= :fromAt AND transaction_at < :toAt
+                UNION ALL
+                SELECT 'R' AS side, transaction_type, amount, receiver_id FROM transactions
+                WHERE receiver_id = :accountId AND owner_id <> :accountId AND is_deleted = false AND status = true
+                  AND transaction_at >= :fromAt AND transaction_at < :toAt
+            ) t
+            """, nativeQuery = true)
+    AccountFlowRow sumAccountFlow(@Param("accountId") Integer accountId,
+                                  @Param("fromAt") LocalDateTime fromAt,
+                                  @Param("toAt") LocalDateTime toAt);
+
+    // Accounts that appear on either side of a transaction in [fromAt, toAt)
+    @Query(value = """
+            SELECT owner_id FROM transactions
+            WHERE transaction_at >= :fromAt AND transaction_at < :toAt AND owner_id IS NOT NULL
+            UNION
+            SELECT receiver_id FROM transactions
+            WHERE transaction_at >= :fromAt AND transaction_at < :toAt AND receiver_id IS NOT NULL
+            """, nativeQuery = true)
+    List<Integer> findActiveAccountIds(@Param("fromAt") LocalDateTime fromAt,
+                                       @Param("toAt") LocalDateTime toAt);
+
+    // Oldest first export of every matching row, read through a server-side cursor in chunks of 1000
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(JPQL_ROW_SELECT +
+           "WHERE t.isDeleted = false " +
+           "AND (:accountId IS NULL OR o.id = :accountId OR r.id = :accountId) " +
+           "AND (:transactionType IS NULL OR t.transactionType = :transactionType) " +
+           "AND t.transactionAt >= :fromAt AND t.transactionAt < :toAt " +
+           "ORDER BY t.transactionAt, t.id")
+    Stream<TransactionHistoryRow> streamForExport(@Param("accountId") Integer accountId,
+                                                  @Param("transactionType") String transactionType,
+                                                  @Param("fromAt") LocalDateTime fromAt,
+                                                  @Param("toAt") LocalDateTime toAt);
 }
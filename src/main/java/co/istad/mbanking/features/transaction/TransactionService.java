@@ -3,17 +3,25 @@ package co.istad.mbanking.features.transaction;
 import co.istad.mbanking.features.account.dto.AccountDetailResponse;
 import co.istad.mbanking.features.account.dto.DepositRequest;
 import co.istad.mbanking.features.account.dto.WithdrawRequest;
+import co.istad.mbanking.features.transaction.dto.BatchTransferRequest;
+import co.istad.mbanking.features.transaction.dto.BatchTransferResponse;
 import co.istad.mbanking.features.transaction.dto.PaymentRequest;
 import co.istad.mbanking.features.transaction.dto.TransactionHistoryResponse;
 import co.istad.mbanking.features.transaction.dto.TransactionResponse;
 import co.istad.mbanking.features.transaction.dto.TransferRequest;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
 
 public interface TransactionService {
 
-    TransactionResponse transfer(TransferRequest transferRequest, Authentication auth);
+    TransactionResponse transfer(TransferRequest transferRequest, Authentication auth, String idempotencyKey);
+
+    // Transfer from one source account to many receivers in a single transaction (e.g. payroll)
+    BatchTransferResponse batchTransfer(BatchTransferRequest batchTransferRequest, Authentication auth);
 
-    TransactionResponse payment(PaymentRequest paymentRequest, Authentication auth);
+    TransactionResponse payment(PaymentRequest paymentRequest, Authentication auth, String idempotencyKey);
 
     AccountDetailResponse deposit(String actNo, DepositRequest depositRequest);
 
@@ -25,6 +33,9 @@ public interface TransactionService {
     // Get transaction history for a specific account with filter by transaction type
     TransactionHistoryResponse getTransactionHistoryByAccount(String actNo, int page, int size, String transactionType);
 
+    // Get transaction history for a specific account using a keyset cursor instead of page numbers
+    TransactionHistoryResponse getTransactionHistoryByAccount(String actNo, String cursor, int limit, String transactionType);
+
     // Get all transaction history (for admin/staff)
     TransactionHistoryResponse getAllTransactionHistory(int page, int size);
 
@@ -36,4 +47,11 @@ public interface TransactionService {
 
     // Get transaction history for the current authenticated user across all their accounts with filter by transaction type
     TransactionHistoryResponse getCurrentUserTransactionHistory(int page, int size, String transactionType);
+
+    // Get transaction history for the current authenticated user using a keyset cursor instead of page numbers
+    TransactionHistoryResponse getCurrentUserTransactionHistory(String cursor, int limit, String transactionType);
+
+    // Validate an export request and return a body that streams every matching transaction as CSV or NDJSON
+    StreamingResponseBody exportTransactions(String actNo, LocalDate from, LocalDate to,
+                                             String transactionType, TransactionExportFormat format);
 }
@@ -3,18 +3,23 @@ package co.istad.mbanking.features.transaction;
 import co.istad.mbanking.base.BasedTransactionType;
 import co.istad.mbanking.domain.Account;
 import co.istad.mbanking.domain.Transaction;
-import co.istad.mbanking.domain.User;
 import co.istad.mbanking.features.account.AccountRepository;
 import co.istad.mbanking.features.account.dto.AccountDetailResponse;
 import co.istad.mbanking.features.account.dto.DepositRequest;
 import co.istad.mbanking.features.account.dto.WithdrawRequest;
+import co.istad.mbanking.features.transaction.dto.BatchTransferItem;
+import co.istad.mbanking.features.transaction.dto.BatchTransferItemResult;
+import co.istad.mbanking.features.transaction.dto.BatchTransferRequest;
+import co.istad.mbanking.features.transaction.dto.BatchTransferResponse;
 import co.istad.mbanking.features.transaction.dto.PaymentRequest;
 import co.istad.mbanking.features.transaction.dto.TransactionHistoryResponse;
+import co.istad.mbanking.features.transaction.dto.TransactionHistoryRow;
 import co.istad.mbanking.features.transaction.dto.TransactionResponse;
 import co.istad.mbanking.features.transaction.dto.TransferRequest;
 import co.istad.mbanking.mapper.AccountMapper;
 import co.istad.mbanking.mapper.TransactionMapper;
 import co.istad.mbanking.security.CurrentUserUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -24,57 +29,91 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final int MAX_CURSOR_LIMIT = 100;
+
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
     private final TransactionMapper transactionMapper;
     private final AccountMapper accountMapper;
     private final CurrentUserUtil currentUserUtil;
+    private final BalanceMutationExecutor balanceMutationExecutor;
+    private final IdempotencyService idempotencyService;
+    private final LedgerService ledgerService;
+    private final BalanceShardService balanceShardService;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
 
-    @Transactional
     @Override
-    public TransactionResponse transfer(TransferRequest transferRequest, Authentication auth) {
+    public TransactionResponse transfer(TransferRequest transferRequest, Authentication auth, String idempotencyKey) {
+        return balanceMutationExecutor.execute(() -> idempotencyService.execute(
+                idempotencyKey, "TRANSFER", transferRequest, () -> doTransfer(transferRequest)));
+    }
+
+    private TransactionResponse doTransfer(TransferRequest transferRequest) {
         // Validate actNoOfOwner
-        Account accountOwner = accountRepository
-                .findByActNo(transferRequest.actNoOfOwner())
+        Integer ownerId = accountRepository
+                .findIdByActNo(transferRequest.actNoOfOwner())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Invalid account owner"));
 
-        // Check if the source account belongs to the current authenticated user
-        User currentUser = currentUserUtil.getCurrentUser();
-        boolean isUserAccount = accountOwner.getUserAccount().getUser().getId().equals(currentUser.getId());
-
-        if (!isUserAccount) {
-            throw new ResponseStatusException(
-                    HttpStatus.FORBIDDEN,
-                    "You can only transfer from your own accounts"
-            );
-        }
-
         // Validate actNoOfReceiver
-        Account accountReceiver = accountRepository
-                .findByActNo(transferRequest.actNoOfReceiver())
+        Integer receiverId = accountRepository
+                .findIdByActNo(transferRequest.actNoOfReceiver())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Invalid account receiver"));
 
         // Prevent transfer to the same account
-        if (accountOwner.getActNo().equals(accountReceiver.getActNo())) {
+        if (ownerId.equals(receiverId)) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
                     "Cannot transfer to the same account"
             );
         }
 
+        // Only the debited row is locked; the receiver is credited through a balance shard
+        Account accountOwner = balanceMutationExecutor.loadAccountsForUpdate(ownerId).get(ownerId);
+        Account accountReceiver = accountRepository.getReferenceById(receiverId);
+
+        // Check if the source account belongs to the current authenticated user
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
+        boolean isUserAccount = accountOwner.getUserAccount().getUser().getId().equals(currentUserId);
+
+        if (!isUserAccount) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "You can only transfer from your own accounts"
+            );
+        }
+
         // Validate amount
         if (transferRequest.amount().compareTo(BigDecimal.ZERO) <= 0) {
             throw new ResponseStatusException(
@@ -83,8 +122,9 @@ public class TransactionServiceImpl implements TransactionService {
             );
         }
 
-        // Validate insufficient balance
-        if (transferRequest.amount().compareTo(accountOwner.getBalance()) > 0) {
+        // Validate insufficient balance, counting the credits still parked in shards
+        balanceShardService.loadPendingCredits(accountOwner);
+        if (transferRequest.amount().compareTo(accountOwner.getAvailableBalance()) > 0) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
                     "Insufficient balance"
@@ -105,15 +145,8 @@ public class TransactionServiceImpl implements TransactionService {
                 .subtract(transferRequest.amount());
         accountOwner.setBalance(latestBalanceOfOwner);
 
-        // Add money to receiver account
-        BigDecimal latestBalanceOfReceiver = accountReceiver
-                .getBalance()
-                .add(transferRequest.amount());
-        accountReceiver.setBalance(latestBalanceOfReceiver);
-
-        // Save both accounts
+        // Save owner account (row lock or version check applies at commit)
         accountRepository.save(accountOwner);
-        accountRepository.save(accountReceiver);
 
         // Create transaction record
         Transaction transaction = new Transaction();
@@ -126,24 +159,143 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setIsDeleted(false);
         transaction.setTransactionType(BasedTransactionType.TRANSFER.toString());
 
+        // Credit the receiver through a balance shard, its account row stays unlocked
+        balanceShardService.credit(receiverId, transferRequest.actNoOfReceiver(), transferRequest.amount());
+
         transaction = transactionRepository.save(transaction);
+        ledgerService.record(transaction);
 
         return transactionMapper.toTransactionResponse(transaction);
     }
 
-    @Transactional
+    @Override
+    public BatchTransferResponse batchTransfer(BatchTransferRequest batchTransferRequest, Authentication auth) {
+        return balanceMutationExecutor.execute(() -> doBatchTransfer(batchTransferRequest));
+    }
+
+    private BatchTransferResponse doBatchTransfer(BatchTransferRequest batchTransferRequest) {
+        List<BatchTransferItem> items = batchTransferRequest.transfers();
+
+        // Validate actNoOfOwner; only the owner's row is locked
+        Integer ownerId = accountRepository
+                .findIdByActNo(batchTransferRequest.actNoOfOwner())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Invalid account owner"));
+        Account accountOwner = balanceMutationExecutor.loadAccountsForUpdate(ownerId).get(ownerId);
+
+        // Resolve every receiver in one IN query, without locks (credits go to balance shards)
+        Set<String> actNos = new HashSet<>();
+        items.forEach(item -> actNos.add(item.actNoOfReceiver()));
+        Map<String, Account> accounts = accountRepository.findAllByActNoIn(actNos).stream()
+                .collect(Collectors.toMap(Account::getActNo, Function.identity()));
+
+        // Check if the source account belongs to the current authenticated user
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
+        boolean isUserAccount = accountOwner.getUserAccount().getUser().getId().equals(currentUserId);
+
+        if (!isUserAccount) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN,
+                    "You can only transfer from your own accounts"
+            );
+        }
+
+        // Validate each item; rejected items are reported and do not count toward the total
+        BatchTransferItemResult[] results = new BatchTransferItemResult[items.size()];
+        List<Integer> acceptedIndexes = new ArrayList<>(items.size());
+        BigDecimal totalAmount = BigDecimal.ZERO;
+
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransferItem item = items.get(i);
+            Account accountReceiver = accounts.get(item.actNoOfReceiver());
+
+            String reason = null;
+            if (accountReceiver == null) {
+                reason = "Invalid account receiver";
+            } else if (accountReceiver.getId().equals(accountOwner.getId())) {
+                reason = "Cannot transfer to the same account";
+            } else if (item.amount().compareTo(accountOwner.getTransferLimit()) > 0) {
+                reason = "Transfer amount exceeds account limit";
+            }
+
+            if (reason != null) {
+                results[i] = new BatchTransferItemResult(i, item.actNoOfReceiver(), item.amount(), false, reason);
+            } else {
+                acceptedIndexes.add(i);
+                totalAmount = totalAmount.add(item.amount());
+            }
+        }
+
+        // Validate insufficient balance once, against the total of the accepted items
+        balanceShardService.loadPendingCredits(accountOwner);
+        if (totalAmount.compareTo(accountOwner.getAvailableBalance()) > 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Insufficient balance for batch total of " + totalAmount
+            );
+        }
+
+        // Subtract the total from owner account
+        accountOwner.setBalance(accountOwner.getBalance().subtract(totalAmount));
+        accountRepository.save(accountOwner);
+
+        // Build transaction records, inserted below with JDBC batching; receivers are credited
+        // through balance shards, one upsert per receiver in id order so concurrent batches cannot deadlock
+        LocalDateTime transactionAt = LocalDateTime.now();
+        List<Transaction> transactions = new ArrayList<>(acceptedIndexes.size());
+        Map<Account, BigDecimal> credits = new TreeMap<>(Comparator.comparing(Account::getId));
+
+        for (int i : acceptedIndexes) {
+            BatchTransferItem item = items.get(i);
+            Account accountReceiver = accounts.get(item.actNoOfReceiver());
+
+            Transaction transaction = new Transaction();
+            transaction.setOwner(accountOwner);
+            transaction.setReceiver(accountReceiver);
+            transaction.setAmount(item.amount());
+            transaction.setRemark(item.remark());
+            transaction.setTransactionAt(transactionAt);
+            transaction.setStatus(true);
+            transaction.setIsDeleted(false);
+            transaction.setTransactionType(BasedTransactionType.TRANSFER.toString());
+            transactions.add(transaction);
+            credits.merge(accountReceiver, item.amount(), BigDecimal::add);
+
+            results[i] = new BatchTransferItemResult(i, item.actNoOfReceiver(), item.amount(), true, null);
+        }
+
+        credits.forEach((receiver, amount) -> balanceShardService.credit(receiver.getId(), receiver.getActNo(), amount));
+
+        transactionRepository.saveAll(transactions);
+        ledgerService.record(transactions);
+
+        return BatchTransferResponse.builder()
+                .actNoOfOwner(accountOwner.getActNo())
+                .totalAmount(totalAmount)
+                .succeeded(acceptedIndexes.size())
+                .failed(items.size() - acceptedIndexes.size())
+                .results(Arrays.asList(results))
+                .build();
+    }
+
     @Override
     public AccountDetailResponse deposit(String actNo, DepositRequest depositRequest) {
-        Account account = accountRepository
-                .findByActNo(actNo)
+        return balanceMutationExecutor.execute(() -> doDeposit(actNo, depositRequest));
+    }
+
+    private AccountDetailResponse doDeposit(String actNo, DepositRequest depositRequest) {
+        Integer accountId = accountRepository
+                .findIdByActNo(actNo)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Account doesn't exist"
                 ));
+        // A deposit only credits, so the account row is read without a lock and never updated
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account doesn't exist"));
 
         // Check if the account belongs to the current authenticated user
-        User currentUser = currentUserUtil.getCurrentUser();
-        boolean isUserAccount = account.getUserAccount().getUser().getId().equals(currentUser.getId());
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
+        boolean isUserAccount = account.getUserAccount().getUser().getId().equals(currentUserId);
 
         if (!isUserAccount) {
             throw new ResponseStatusException(
@@ -152,9 +304,6 @@ public class TransactionServiceImpl implements TransactionService {
             );
         }
 
-        BigDecimal total = account.getBalance().add(depositRequest.amount());
-        account.setBalance(total);
-
         // Create a transaction record
         Transaction transaction = new Transaction();
         transaction.setReceiver(account);
@@ -166,25 +315,34 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setIsDeleted(false);
         transaction.setTransactionType(BasedTransactionType.DEPOSIT.toString());
 
+        balanceShardService.loadPendingCredits(account);
+        balanceShardService.credit(accountId, actNo, depositRequest.amount());
         transactionRepository.save(transaction);
-        Account savedAccount = accountRepository.save(account);
+        ledgerService.record(transaction);
 
-        return accountMapper.toAccountDetailResponse(savedAccount);
+        // Keep the in-memory read model consistent with the credit just recorded
+        account.setPendingCredits(account.getPendingCredits().add(depositRequest.amount()));
+
+        return accountMapper.toAccountDetailResponse(account);
     }
 
-    @Transactional
     @Override
     public AccountDetailResponse withdraw(String actNo, WithdrawRequest withdrawRequest) {
-        Account account = accountRepository
-                .findByActNo(actNo)
+        return balanceMutationExecutor.execute(() -> doWithdraw(actNo, withdrawRequest));
+    }
+
+    private AccountDetailResponse doWithdraw(String actNo, WithdrawRequest withdrawRequest) {
+        Integer accountId = accountRepository
+                .findIdByActNo(actNo)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Account doesn't exist"
                 ));
+        Account account = balanceMutationExecutor.loadAccountsForUpdate(accountId).get(accountId);
 
         // Check if the account belongs to the current authenticated user
-        User currentUser = currentUserUtil.getCurrentUser();
-        boolean isUserAccount = account.getUserAccount().getUser().getId().equals(currentUser.getId());
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
+        boolean isUserAccount = account.getUserAccount().getUser().getId().equals(currentUserId);
 
         if (!isUserAccount) {
             throw new ResponseStatusException(
@@ -193,7 +351,8 @@ public class TransactionServiceImpl implements TransactionService {
             );
         }
 
-        if (account.getBalance().compareTo(withdrawRequest.amount()) < 0) {
+        balanceShardService.loadPendingCredits(account);
+        if (account.getAvailableBalance().compareTo(withdrawRequest.amount()) < 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Insufficient balance");
         }
@@ -213,22 +372,37 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setTransactionType(BasedTransactionType.WITHDRAW.toString());
 
         transactionRepository.save(transaction);
+        ledgerService.record(transaction);
         Account savedAccount = accountRepository.save(account);
 
         return accountMapper.toAccountDetailResponse(savedAccount);
     }
 
-    @Transactional
     @Override
-    public TransactionResponse payment(PaymentRequest paymentRequest, Authentication auth) {
+    public TransactionResponse payment(PaymentRequest paymentRequest, Authentication auth, String idempotencyKey) {
+        return balanceMutationExecutor.execute(() -> idempotencyService.execute(
+                idempotencyKey, "PAYMENT", paymentRequest, () -> doPayment(paymentRequest)));
+    }
+
+    private TransactionResponse doPayment(PaymentRequest paymentRequest) {
         // Validate actNoOfOwner
-        Account accountOwner = accountRepository
-                .findByActNo(paymentRequest.actNoOfOwner())
+        Integer ownerId = accountRepository
+                .findIdByActNo(paymentRequest.actNoOfOwner())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Invalid account owner"));
 
+        // Check if the payment receiver is an account in our system
+        Integer receiverId = null;
+        if (paymentRequest.paymentReceiver() != null) {
+            receiverId = accountRepository.findIdByActNo(paymentRequest.paymentReceiver()).orElse(null);
+        }
+
+        // Only the debited row is locked; an internal receiver is credited through a balance shard
+        Account accountOwner = balanceMutationExecutor.loadAccountsForUpdate(ownerId).get(ownerId);
+        Account accountReceiver = receiverId != null ? accountRepository.getReferenceById(receiverId) : null;
+
         // Check if the source account belongs to the current authenticated user
-        User currentUser = currentUserUtil.getCurrentUser();
-        boolean isUserAccount = accountOwner.getUserAccount().getUser().getId().equals(currentUser.getId());
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
+        boolean isUserAccount = accountOwner.getUserAccount().getUser().getId().equals(currentUserId);
 
         if (!isUserAccount) {
             throw new ResponseStatusException(
@@ -245,8 +419,9 @@ public class TransactionServiceImpl implements TransactionService {
             );
         }
 
-        // Validate insufficient balance
-        if (paymentRequest.amount().compareTo(accountOwner.getBalance()) > 0) {
+        // Validate insufficient balance, counting the credits still parked in shards
+        balanceShardService.loadPendingCredits(accountOwner);
+        if (paymentRequest.amount().compareTo(accountOwner.getAvailableBalance()) > 0) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
                     "Insufficient balance"
@@ -267,25 +442,6 @@ public class TransactionServiceImpl implements TransactionService {
                 .subtract(paymentRequest.amount());
         accountOwner.setBalance(latestBalanceOfOwner);
 
-        // Check if the payment receiver is an account in our system
-        Account accountReceiver = null;
-        // Try to find the receiver account by account number
-        if (paymentRequest.paymentReceiver() != null) {
-            accountReceiver = accountRepository.findByActNo(paymentRequest.paymentReceiver()).orElse(null);
-        }
-
-        // If we found a valid account receiver, add money to it
-        if (accountReceiver != null) {
-            // Add money to receiver account
-            BigDecimal latestBalanceOfReceiver = accountReceiver
-                    .getBalance()
-                    .add(paymentRequest.amount());
-            accountReceiver.setBalance(latestBalanceOfReceiver);
-
-            // Save receiver account
-            accountRepository.save(accountReceiver);
-        }
-
         // Save owner account
         accountRepository.save(accountOwner);
 
@@ -301,15 +457,20 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setIsDeleted(false);
         transaction.setTransactionType(BasedTransactionType.PAYMENT.toString());
 
+        if (receiverId != null) {
+            balanceShardService.credit(receiverId, paymentRequest.paymentReceiver(), paymentRequest.amount());
+        }
+
         transaction = transactionRepository.save(transaction);
+        ledgerService.record(transaction);
 
         return transactionMapper.toTransactionResponse(transaction);
     }
 
     @Override
     public TransactionHistoryResponse getTransactionHistoryByAccount(String actNo, int page, int size) {
-        // Check if account exists
-        accountRepository.findByActNo(actNo)
+        // Check if account exists, resolving the account number to an id for the index-backed history query
+        Integer accountId = accountRepository.findIdByActNo(actNo)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
 
         // Adjust page number to be zero-based for Spring Data
@@ -317,7 +478,7 @@ public class TransactionServiceImpl implements TransactionService {
         Pageable pageable = PageRequest.of(adjustedPage, size);
 
         // Fetch transactions for the account
-        Page<Transaction> transactionsPage = transactionRepository.findTransactionHistoryByAccountNumber(actNo, pageable);
+        Page<TransactionHistoryRow> transactionsPage = transactionRepository.findTransactionHistoryByAccountId(accountId, null, pageable);
 
         // Convert transactions to DTOs
         List<TransactionResponse> transactionResponses = transactionsPage.getContent().stream()
@@ -337,8 +498,8 @@ public class TransactionServiceImpl implements TransactionService {
     // Method with transactionType parameter for filtering account transactions
     @Override
     public TransactionHistoryResponse getTransactionHistoryByAccount(String actNo, int page, int size, String transactionType) {
-        // Check if account exists
-        accountRepository.findByActNo(actNo)
+        // Check if account exists, resolving the account number to an id for the index-backed history query
+        Integer accountId = accountRepository.findIdByActNo(actNo)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
 
         // Adjust page number to be zero-based for Spring Data
@@ -346,7 +507,7 @@ public class TransactionServiceImpl implements TransactionService {
         Pageable pageable = PageRequest.of(adjustedPage, size);
 
         // Fetch transactions for the account with optional type filter
-        Page<Transaction> transactionsPage = transactionRepository.findTransactionHistoryByAccountNumberAndType(actNo, transactionType, pageable);
+        Page<TransactionHistoryRow> transactionsPage = transactionRepository.findTransactionHistoryByAccountId(accountId, transactionType, pageable);
 
         // Convert transactions to DTOs
         List<TransactionResponse> transactionResponses = transactionsPage.getContent().stream()
@@ -363,6 +524,22 @@ public class TransactionServiceImpl implements TransactionService {
                 .build();
     }
 
+    @Override
+    public TransactionHistoryResponse getTransactionHistoryByAccount(String actNo, String cursor, int limit, String transactionType) {
+        // Check if account exists, resolving the account number to an id for the index-backed history query
+        Integer accountId = accountRepository.findIdByActNo(actNo)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
+
+        validateCursorLimit(limit);
+        TransactionCursor after = TransactionCursor.decode(cursor);
+
+        // Fetch one extra row to know whether there is a next page, without a count query
+        List<TransactionHistoryRow> transactions = transactionRepository.findTransactionHistoryByAccountIdAfter(
+                accountId, transactionType, after.transactionAt(), after.id(), PageRequest.of(0, limit + 1));
+
+        return toCursorHistoryResponse(actNo, transactions, limit);
+    }
+
     @Override
     public TransactionHistoryResponse getAllTransactionHistory(int page, int size) {
         // Adjust page number to be zero-based for Spring Data
@@ -370,7 +547,7 @@ public class TransactionServiceImpl implements TransactionService {
         Pageable pageable = PageRequest.of(adjustedPage, size);
 
         // Fetch all transactions
-        Page<Transaction> transactionsPage = transactionRepository.findAllTransactions(pageable);
+        Page<TransactionHistoryRow> transactionsPage = transactionRepository.findAllTransactions(pageable);
 
         // Convert transactions to DTOs
         List<TransactionResponse> transactionResponses = transactionsPage.getContent().stream()
@@ -395,7 +572,7 @@ public class TransactionServiceImpl implements TransactionService {
         Pageable pageable = PageRequest.of(adjustedPage, size);
 
         // Fetch all transactions with optional type filter
-        Page<Transaction> transactionsPage = transactionRepository.findAllTransactionsByType(transactionType, pageable);
+        Page<TransactionHistoryRow> transactionsPage = transactionRepository.findAllTransactionsByType(transactionType, pageable);
 
         // Convert transactions to DTOs
         List<TransactionResponse> transactionResponses = transactionsPage.getContent().stream()
@@ -415,14 +592,14 @@ public class TransactionServiceImpl implements TransactionService {
     @Override
     public TransactionHistoryResponse getCurrentUserTransactionHistory(int page, int size) {
         // Get the current authenticated user
-        User currentUser = currentUserUtil.getCurrentUser();
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
 
         // Adjust page number to be zero-based for Spring Data
         int adjustedPage = page > 0 ? page - 1 : 0;
         Pageable pageable = PageRequest.of(adjustedPage, size);
 
         // Fetch transactions for all accounts of the current user
-        Page<Transaction> transactionsPage = transactionRepository.findTransactionHistoryByUser(currentUser, pageable);
+        Page<TransactionHistoryRow> transactionsPage = transactionRepository.findTransactionHistoryByUser(currentUserId, pageable);
 
         // Convert transactions to DTOs
         List<TransactionResponse> transactionResponses = transactionsPage.getContent().stream()
@@ -443,15 +620,15 @@ public class TransactionServiceImpl implements TransactionService {
     @Override
     public TransactionHistoryResponse getCurrentUserTransactionHistory(int page, int size, String transactionType) {
         // Get the current authenticated user
-        User currentUser = currentUserUtil.getCurrentUser();
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
 
         // Adjust page number to be zero-based for Spring Data
         int adjustedPage = page > 0 ? page - 1 : 0;
         Pageable pageable = PageRequest.of(adjustedPage, size);
 
         // Fetch transactions for all accounts of the current user with optional type filter
-        Page<Transaction> transactionsPage = transactionRepository.findTransactionHistoryByUserAndType(
-                currentUser, transactionType, pageable);
+        Page<TransactionHistoryRow> transactionsPage = transactionRepository.findTransactionHistoryByUserAndType(
+                currentUserId, transactionType, pageable);
 
         // Convert transactions to DTOs
         List<TransactionResponse> transactionResponses = transactionsPage.getContent().stream()
@@ -467,4 +644,114 @@ public class TransactionServiceImpl implements TransactionService {
                 .totalPages(transactionsPage.getTotalPages())
                 .build();
     }
+
+    @Override
+    public TransactionHistoryResponse getCurrentUserTransactionHistory(String cursor, int limit, String transactionType) {
+        // Get the current authenticated user
+        Integer currentUserId = currentUserUtil.getCurrentUserId();
+
+        validateCursorLimit(limit);
+        TransactionCursor after = TransactionCursor.decode(cursor);
+
+        // Fetch one extra row to know whether there is a next page, without a count query
+        List<TransactionHistoryRow> transactions = transactionRepository.findTransactionHistoryByUserAfter(
+                currentUserId, transactionType, after.transactionAt(), after.id(), limit + 1);
+
+        return toCursorHistoryResponse(null, transactions, limit);
+    }
+
+    private void validateCursorLimit(int limit) {
+        if (limit < 1 || limit > MAX_CURSOR_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Limit must be between 1 and " + MAX_CURSOR_LIMIT);
+        }
+    }
+
+    private TransactionHistoryResponse toCursorHistoryResponse(String actNo, List<TransactionHistoryRow> transactions, int limit) {
+        boolean hasNext = transactions.size() > limit;
+        List<TransactionHistoryRow> page = hasNext ? transactions.subList(0, limit) : transactions;
+
+        String nextCursor = null;
+        if (hasNext) {
+            TransactionHistoryRow last = page.get(page.size() - 1);
+            nextCursor = new TransactionCursor(last.getTransactionAt(), last.getId()).encode();
+        }
+
+        return TransactionHistoryResponse.builder()
+                .accountNo(actNo)
+                .transactions(page.stream()
+                        .map(transactionMapper::toTransactionResponse)
+                        .collect(Collectors.toList()))
+                .limit(limit)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Override
+    public StreamingResponseBody exportTransactions(String actNo, LocalDate from, LocalDate to,
+                                                    String transactionType, TransactionExportFormat format) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Start date must not be after end date");
+        }
+
+        // Resolve the account before the response starts, so a bad account number is still a 404
+        Integer accountId = null;
+        if (actNo != null) {
+            accountId = accountRepository.findIdByActNo(actNo)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
+        }
+
+        Integer exportAccountId = accountId;
+        TransactionTemplate readOnlyTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate.setReadOnly(true);
+
+        // Rows are written as they are read from the cursor, so memory stays flat for any export size
+        return outputStream -> readOnlyTemplate.executeWithoutResult(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+
+            try (Stream<TransactionHistoryRow> rows = transactionRepository.streamForExport(
+                    exportAccountId, transactionType, from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+
+                if (format == TransactionExportFormat.CSV) {
+                    writer.write("actNoOfOwner,actNoOfReceiver,paymentReceiver,amount,remark,transactionType,transactionAt,status\n");
+                }
+
+                for (TransactionHistoryRow row : (Iterable<TransactionHistoryRow>) rows::iterator) {
+                    writer.write(format == TransactionExportFormat.CSV ? toCsvLine(row) : toJsonLine(row));
+                }
+
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private String toCsvLine(TransactionHistoryRow row) {
+        return String.join(",",
+                csv(row.getActNoOfOwner()),
+                csv(row.getActNoOfReceiver()),
+                csv(row.getPaymentReceiver()),
+                csv(row.getAmount()),
+                csv(row.getRemark()),
+                csv(row.getTransactionType()),
+                csv(row.getTransactionAt()),
+                csv(row.getStatus())) + "\n";
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    private String toJsonLine(TransactionHistoryRow row) throws IOException {
+        return objectMapper.writeValueAsString(transactionMapper.toTransactionResponse(row)) + "\n";
+    }
 }
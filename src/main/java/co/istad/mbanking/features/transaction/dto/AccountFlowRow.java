@@ -0,0 +1,12 @@
+package co.istad.mbanking.features.transaction.dto;
+
+import java.math.BigDecimal;
+
+// Money into and out of one account over a time range
+public interface AccountFlowRow {
+
+    BigDecimal getCredit();
+
+    BigDecimal getDebit();
+
+}
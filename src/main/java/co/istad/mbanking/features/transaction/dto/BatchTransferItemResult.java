@@ -0,0 +1,15 @@
+package co.istad.mbanking.features.transaction.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchTransferItemResult(
+        int index,
+        String actNoOfReceiver,
+        BigDecimal amount,
+        Boolean success,
+        String reason
+) {
+}
@@ -0,0 +1,17 @@
+package co.istad.mbanking.features.transaction.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchTransferRequest(
+        @NotBlank
+        String actNoOfOwner,
+        @NotEmpty
+        @Size(max = 10000, message = "A batch can contain at most 10000 transfers")
+        List<@Valid BatchTransferItem> transfers
+) {
+}
@@ -0,0 +1,16 @@
+package co.istad.mbanking.features.transaction.dto;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Builder
+public record BatchTransferResponse(
+        String actNoOfOwner,
+        BigDecimal totalAmount,
+        int succeeded,
+        int failed,
+        List<BatchTransferItemResult> results
+) {
+}
@@ -0,0 +1,12 @@
+package co.istad.mbanking.features.transaction.dto;
+
+import java.math.BigDecimal;
+
+// Unfolded shard credits of one account
+public interface ShardCreditRow {
+
+    Integer getAccountId();
+
+    BigDecimal getCredits();
+
+}
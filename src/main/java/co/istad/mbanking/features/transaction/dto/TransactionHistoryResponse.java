@@ -10,8 +10,11 @@ import java.util.List;
 public record TransactionHistoryResponse(
     String accountNo,
     List<TransactionResponse> transactions,
-    int page,
-    int size,
-    int totalPages
+    Integer page,
+    Integer size,
+    Integer totalPages,
+    // Cursor mode only: page size used and the cursor for the next page (absent on the last page)
+    Integer limit,
+    String nextCursor
 ) {
 }
@@ -0,0 +1,30 @@
+package co.istad.mbanking.features.transaction.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat projection of one history row, read in the same query as the page
+ * instead of loading the owner/receiver Account graphs.
+ */
+public interface TransactionHistoryRow {
+
+    Integer getId();
+
+    String getActNoOfOwner();
+
+    String getActNoOfReceiver();
+
+    String getPaymentReceiver();
+
+    BigDecimal getAmount();
+
+    String getRemark();
+
+    String getTransactionType();
+
+    LocalDateTime getTransactionAt();
+
+    Boolean getStatus();
+
+}
@@ -1,10 +1,14 @@
 package co.istad.mbanking.features.user;
 
 import co.istad.mbanking.domain.User;
+import co.istad.mbanking.features.user.dto.UserIdRow;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import javax.swing.text.html.Option;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
@@ -34,4 +38,8 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     boolean existsByUuid(String uuid);
 
+    // Resolve many uuids to ids without loading User graphs
+    @Query("SELECT u.id AS id, u.uuid AS uuid FROM User u WHERE u.uuid IN :uuids")
+    List<UserIdRow> findIdsByUuidIn(@Param("uuids") Collection<String> uuids);
+
 }
@@ -2,23 +2,27 @@ package co.istad.mbanking.features.user;
 
 import co.istad.mbanking.domain.Role;
 import co.istad.mbanking.domain.User;
-import co.istad.mbanking.features.auth.RoleRepository;
 import co.istad.mbanking.features.auth.dto.ChangePasswordRequest;
 import co.istad.mbanking.features.auth.dto.ResetPasswordRequest;
+import co.istad.mbanking.features.mail.MailService;
+import co.istad.mbanking.features.reference.ReferenceDataCache;
 import co.istad.mbanking.features.user.dto.CreateUserRequest;
 import co.istad.mbanking.features.user.dto.UserResponse;
 import co.istad.mbanking.features.user.dto.UserUpdateRequest;
 import co.istad.mbanking.mapper.UserMapper;
+import co.istad.mbanking.security.PrincipalCache;
+import co.istad.mbanking.security.TokenRevocationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
@@ -32,17 +36,16 @@ import java.util.UUID;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
-    private final JavaMailSender mailSender;
+    private final MailService mailService;
+    private final PrincipalCache principalCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final ReferenceDataCache referenceDataCache;
 
     @Value("${file-server.base-uri}")
     private String fileServerBaseUri;
 
-    @Value("${spring.mail.username}")
-    private String mailUsername;
-
     @Override
     public UserResponse register(CreateUserRequest createUserRequest) {
 
@@ -84,8 +87,8 @@ public class UserServiceImpl implements UserService {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
 
         List<Role> roles = new ArrayList<>();
-        roles.add(roleRepository.findById(1).orElseThrow());
-        roles.add(roleRepository.findById(2).orElseThrow());
+        roles.add(referenceDataCache.findRoleById(1).orElseThrow());
+        roles.add(referenceDataCache.findRoleById(2).orElseThrow());
         user.setRoles(roles);
 
         userRepository.save(user);
@@ -108,6 +111,7 @@ public class UserServiceImpl implements UserService {
 
 
         user = userRepository.save(user);
+        principalCache.evict(user.getEmail());
 
         return userMapper.toUserResponse(user);
     }
@@ -141,6 +145,8 @@ public class UserServiceImpl implements UserService {
 
         user.setIsBlocked(status);
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
+        tokenRevocationService.revokeAll(user.getEmail());
     }
 
     @Override
@@ -150,6 +156,8 @@ public class UserServiceImpl implements UserService {
                         new ResponseStatusException(HttpStatus.NOT_FOUND,
                                 "User has not been found!"));
         userRepository.delete(user);
+        principalCache.evict(user.getEmail());
+        tokenRevocationService.revokeAll(user.getEmail());
     }
 
     @Override
@@ -162,6 +170,7 @@ public class UserServiceImpl implements UserService {
         user.setProfileImage(mediaName);
 
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
 
         return fileServerBaseUri + user.getProfileImage();
     }
@@ -175,7 +184,7 @@ public class UserServiceImpl implements UserService {
                                 "User has not been found!"));
 
         // Find role by name
-        Role role = roleRepository.findByName(roleName)
+        Role role = referenceDataCache.findRoleByName(roleName)
                 .orElseThrow(() ->
                         new ResponseStatusException(HttpStatus.NOT_FOUND,
                                 "Role has not been found!"));
@@ -192,6 +201,9 @@ public class UserServiceImpl implements UserService {
         // Add the role to user's roles
         user.getRoles().add(role);
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
+        // Issued tokens carry the old scope claim
+        tokenRevocationService.revokeAll(user.getEmail());
 
         return userMapper.toUserResponse(user);
     }
@@ -219,6 +231,8 @@ public class UserServiceImpl implements UserService {
         // Update the password securely
         user.setPassword(passwordEncoder.encode(changePasswordRequest.password()));
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
+        tokenRevocationService.revokeAll(user.getEmail());
 
         log.info("Password changed successfully for user: {}", user.getEmail());
     }
@@ -226,6 +240,7 @@ public class UserServiceImpl implements UserService {
     /**
      * Reset Password API
      */
+    @Transactional
     @Override
     public void resetPassword(ResetPasswordRequest resetPasswordRequest) {
 
@@ -246,28 +261,24 @@ public class UserServiceImpl implements UserService {
         user.setPassword(passwordEncoder.encode(temporaryPassword));
         userRepository.save(user);
 
-        // Send email with the temporary password
-        try {
-            SimpleMailMessage mailMessage = new SimpleMailMessage();
-            mailMessage.setTo(user.getEmail());
-            mailMessage.setFrom(mailUsername);
-            mailMessage.setSubject("Your Password Reset Request");
-            mailMessage.setText(
-                    "Hello " + user.getName() + ",\n\n" +
-                            "We received a request to reset your password.\n" +
-                            "Here is your temporary password: " + temporaryPassword + "\n\n" +
-                            "⚠ Please log in and change your password immediately for security.\n\n" +
-                            "Thank you,\nBanking API Team"
-            );
-
-            mailSender.send(mailMessage);
-
-            log.info("Temporary password sent successfully to: {}", user.getEmail());
-
-        } catch (Exception e) {
-            log.error("Failed to send email: {}", e.getMessage(), e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Failed to send temporary password. Please try again.");
-        }
+        // Evict and revoke only once the new hash is committed: a login between an earlier eviction
+        // and the commit would reload and cache the old hash
+        String email = user.getEmail();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                principalCache.evict(email);
+                tokenRevocationService.revokeAll(email);
+            }
+        });
+
+        // Queue the temporary password mail; it is delivered from the outbox after commit
+        mailService.enqueue(user.getEmail(), "Your Password Reset Request",
+                "Hello " + user.getName() + ",\n\n" +
+                        "We received a request to reset your password.\n" +
+                        "Here is your temporary password: " + temporaryPassword + "\n\n" +
+                        "⚠ Please log in and change your password immediately for security.\n\n" +
+                        "Thank you,\nBanking API Team",
+                false);
     }
 }
@@ -0,0 +1,9 @@
+package co.istad.mbanking.features.user.dto;
+
+public interface UserIdRow {
+
+    Integer getId();
+
+    String getUuid();
+
+}
@@ -13,6 +13,8 @@ public interface AccountMapper {
     void fromUpdateAccountRequestPartially(UpdateAccountRequest updateAccountRequest,
                                            @MappingTarget Account account);
 
+    // Folded balance plus the shard credits loaded into the account
+    @Mapping(target = "balance", source = "availableBalance")
     AccountDetailResponse toAccountDetailResponse(Account account);
 
     Account fromCreateAccountRequest(CreateAccountRequest createAccountRequest);
@@ -1,9 +1,13 @@
 package co.istad.mbanking.mapper;
 
 import co.istad.mbanking.domain.Card;
+import co.istad.mbanking.domain.CardIssuanceJob;
 import co.istad.mbanking.features.account.dto.AccountDetailResponse;
+import co.istad.mbanking.features.card.dto.CardIssuanceJobResponse;
 import co.istad.mbanking.features.card.dto.CardRequest;
 import co.istad.mbanking.features.card.dto.CardResponse;
+import co.istad.mbanking.features.card.dto.CardSearchRow;
+import co.istad.mbanking.features.card.dto.CardSummaryResponse;
 import co.istad.mbanking.features.card.dto.CardTypeResponse;
 import org.mapstruct.*;
 
@@ -38,4 +42,9 @@ public interface CardMapper {
 
 //    @Mapping(target = "description", source = "cardType.name") // Using name as description for now
     CardTypeResponse toCardTypeResponse(co.istad.mbanking.domain.CardType cardType);
+
+    CardSummaryResponse toCardSummaryResponse(CardSearchRow cardSearchRow);
+
+    @Mapping(target = "cardTypeAlias", source = "cardType.alias")
+    CardIssuanceJobResponse toCardIssuanceJobResponse(CardIssuanceJob cardIssuanceJob);
 }
@@ -1,6 +1,7 @@
 package co.istad.mbanking.mapper;
 
 import co.istad.mbanking.domain.Transaction;
+import co.istad.mbanking.features.transaction.dto.TransactionHistoryRow;
 import co.istad.mbanking.features.transaction.dto.TransactionResponse;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -13,6 +14,8 @@ public interface TransactionMapper {
     @Mapping(source = "paymentReceiver", target = "paymentReceiver")
     TransactionResponse toTransactionResponse(Transaction transaction);
 
+    TransactionResponse toTransactionResponse(TransactionHistoryRow transactionHistoryRow);
+
 }
 
 
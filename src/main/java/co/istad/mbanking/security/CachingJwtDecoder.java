@@ -0,0 +1,96 @@
+package co.istad.mbanking.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Caches successfully decoded tokens by the SHA-256 of the token value until their exp,
+ * so repeated presentations of the same token skip parsing and signature verification.
+ * Revocation is still checked on every hit.
+ */
+class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final OAuth2TokenValidator<Jwt> hitValidator;
+    private final Cache<String, Jwt> cache;
+
+    CachingJwtDecoder(JwtDecoder delegate, OAuth2TokenValidator<Jwt> hitValidator,
+                      long maximumSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.hitValidator = hitValidator;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt-decoder");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+
+        Jwt jwt = cache.getIfPresent(key);
+        if (jwt == null) {
+            // Failures are not cached; a token that fails once is verified again next time
+            jwt = delegate.decode(token);
+            if (jwt.getExpiresAt() != null) {
+                cache.put(key, jwt);
+            }
+            return jwt;
+        }
+
+        OAuth2TokenValidatorResult result = hitValidator.validate(jwt);
+        if (result.hasErrors()) {
+            cache.invalidate(key);
+            throw new JwtValidationException(result.getErrors().iterator().next().getDescription(),
+                    result.getErrors());
+        }
+        return jwt;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            return Math.max(Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
@@ -1,12 +1,14 @@
 package co.istad.mbanking.security;
 
-import co.istad.mbanking.domain.User;
-import co.istad.mbanking.features.user.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
@@ -17,14 +19,17 @@ import org.springframework.http.HttpStatus;
 @RequiredArgsConstructor
 public class CurrentUserUtil {
 
-    private final UserRepository userRepository;
+    // Request attribute holding the user already resolved for the current request
+    private static final String CURRENT_USER_ATTRIBUTE = CurrentUserUtil.class.getName() + ".CURRENT_USER";
+
+    private final UserDetailsService userDetailsService;
 
     /**
      * Get the current authenticated user
-     * @return the User entity for the authenticated user
+     * @return the cached, immutable snapshot of the authenticated user (not a managed entity)
      * @throws ResponseStatusException if no user is authenticated or user is not found
      */
-    public User getCurrentUser() {
+    public CustomUserDetails getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         if (authentication == null) {
@@ -42,9 +47,35 @@ public class CurrentUserUtil {
             userEmail = authentication.getName();
         }
 
-        return userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "User not found with email: " + userEmail));
+        // Memoized per request, so repeated calls in one request resolve the user once
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null
+                && requestAttributes.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof CustomUserDetails user
+                && user.getUsername().equals(userEmail)) {
+            return user;
+        }
+
+        // Resolved through the principal cache, the same entry the JWT converter warmed up
+        CustomUserDetails user;
+        try {
+            user = (CustomUserDetails) userDetailsService.loadUserByUsername(userEmail);
+        } catch (UsernameNotFoundException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "User not found with email: " + userEmail);
+        }
+
+        if (requestAttributes != null) {
+            requestAttributes.setAttribute(CURRENT_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    /**
+     * Get the ID of the current authenticated user
+     * @return the database ID of the authenticated user
+     */
+    public Integer getCurrentUserId() {
+        return getCurrentUser().getId();
     }
 
     /**
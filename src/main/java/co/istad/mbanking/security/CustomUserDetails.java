@@ -2,53 +2,42 @@ package co.istad.mbanking.security;
 
 import co.istad.mbanking.domain.User;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.Collection;
+import java.util.List;
 
+/**
+ * Immutable snapshot of a user taken when the principal is loaded. The principal cache shares one
+ * instance across requests and threads, so it holds plain values and never the User entity itself;
+ * code that needs the entity loads it (or a reference to it) by id in its own persistence context.
+ */
 @Getter
-@Setter
-@NoArgsConstructor
 public class CustomUserDetails implements UserDetails {
 
-    // Your data
-    private User user;
-
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return user.getRoles();
-    }
-
-    @Override
-    public String getPassword() {
-        return user.getPassword();
-    }
-
-    @Override
-    public String getUsername() {
-        return user.getEmail();
-    }
-
-    @Override
-    public boolean isAccountNonExpired() {
-        return user.getIsAccountNonExpired();
-    }
-
-    @Override
-    public boolean isAccountNonLocked() {
-        return user.getIsAccountNonLocked();
+    private final Integer id;
+    private final String uuid;
+    private final String username;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
+    private final boolean accountNonExpired;
+    private final boolean accountNonLocked;
+    private final boolean credentialsNonExpired;
+    private final boolean enabled;
+
+    public CustomUserDetails(User user) {
+        this.id = user.getId();
+        this.uuid = user.getUuid();
+        this.username = user.getEmail();
+        this.password = user.getPassword();
+        this.authorities = user.getRoles() == null ? List.of() : user.getRoles().stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority(role.getAuthority()))
+                .toList();
+        this.accountNonExpired = Boolean.TRUE.equals(user.getIsAccountNonExpired());
+        this.accountNonLocked = Boolean.TRUE.equals(user.getIsAccountNonLocked());
+        this.credentialsNonExpired = Boolean.TRUE.equals(user.getIsCredentialsNonExpired());
+        this.enabled = !Boolean.TRUE.equals(user.getIsDeleted());
     }
 
-    @Override
-    public boolean isCredentialsNonExpired() {
-        return user.getIsCredentialsNonExpired();
-    }
-
-    @Override
-    public boolean isEnabled() {
-        return !user.getIsDeleted();
-    }
 }
@@ -0,0 +1,122 @@
+package co.istad.mbanking.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * File-backed JWK set. The first key signs new tokens; older keys stay in the set,
+ * so tokens they signed keep verifying by kid until they drop out on a later rotation.
+ */
+@Slf4j
+public class JwkKeyStore implements JWKSource<SecurityContext> {
+
+    private final Path file;
+    private final JwtSigningAlgorithm algorithm;
+    private final int retainedKeys;
+
+    // A lock rather than synchronized: rotation does file I/O and must not pin a virtual thread's carrier
+    private final ReentrantLock rotationLock = new ReentrantLock();
+
+    private volatile JWKSet jwkSet;
+
+    public JwkKeyStore(Path file, JwtSigningAlgorithm algorithm, int retainedKeys) {
+        this.file = file;
+        this.algorithm = algorithm;
+        this.retainedKeys = Math.max(retainedKeys, 1);
+        this.jwkSet = load();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        return jwkSelector.select(jwkSet);
+    }
+
+    // Key id of the key that signs new tokens
+    public String getSigningKeyId() {
+        return jwkSet.getKeys().get(0).getKeyID();
+    }
+
+    // Put a fresh signing key in front and keep only the newest retainedKeys keys
+    public void rotate() {
+        rotationLock.lock();
+        try {
+            List<JWK> keys = new ArrayList<>(jwkSet.getKeys());
+            keys.add(0, generateKey());
+            if (keys.size() > retainedKeys) {
+                keys = keys.subList(0, retainedKeys);
+            }
+
+            JWKSet rotated = new JWKSet(keys);
+            save(rotated);
+            jwkSet = rotated;
+        } finally {
+            rotationLock.unlock();
+        }
+        log.info("Rotated JWK set {}, signing key is now {}", file, getSigningKeyId());
+    }
+
+    // Reuse the keys on disk so tokens issued before a restart stay valid;
+    // generate (and persist) a key only when there is none for the configured algorithm
+    private JWKSet load() {
+        List<JWK> keys = new ArrayList<>();
+        if (Files.exists(file)) {
+            try {
+                keys.addAll(JWKSet.parse(Files.readString(file, StandardCharsets.UTF_8)).getKeys());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read JWK set " + file, e);
+            } catch (ParseException e) {
+                throw new IllegalStateException("Invalid JWK set " + file, e);
+            }
+        }
+
+        if (keys.isEmpty() || !algorithm.getJwsAlgorithm().equals(keys.get(0).getAlgorithm())) {
+            keys.add(0, generateKey());
+            JWKSet generated = new JWKSet(keys);
+            save(generated);
+            log.info("Generated {} signing key for {}", algorithm, file);
+            return generated;
+        }
+
+        return new JWKSet(keys);
+    }
+
+    private JWK generateKey() {
+        try {
+            return algorithm.generateKey(UUID.randomUUID().toString());
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Cannot generate " + algorithm + " key", e);
+        }
+    }
+
+    // Write to an owner-only temp file and move it into place, so readers never see a half-written set
+    private void save(JWKSet keys) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.writeString(temp, keys.toString(false), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write JWK set " + file, e);
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package co.istad.mbanking.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class JwkRotationJob {
+
+    private final List<JwkKeyStore> jwkKeyStores;
+
+    // Retained keys x rotation interval must outlive the refresh token (7 days)
+    @Scheduled(cron = "${mbanking.security.jwt.key-store.rotation-cron:0 0 3 * * SUN}")
+    public void rotateKeys() {
+        jwkKeyStores.forEach(JwkKeyStore::rotate);
+    }
+
+}
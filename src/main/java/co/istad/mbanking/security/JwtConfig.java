@@ -1,98 +1,90 @@
 package co.istad.mbanking.security;
 
-import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
-import java.security.interfaces.RSAPublicKey;
-import java.util.List;
-import java.util.UUID;
+import java.nio.file.Path;
 
 @Configuration
 public class JwtConfig {
-    // ============= Access Token ===============
 
-    @Primary
-    @Bean
-    KeyPair keyPair() throws NoSuchAlgorithmException {
-        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-        keyPairGenerator.initialize(4096);
-        return keyPairGenerator.generateKeyPair();
-    }
+    @Value("${mbanking.security.jwt.key-store.directory:keys}")
+    private Path keyStoreDirectory;
 
-    @Primary
-    @Bean
-    RSAKey rsaKey(KeyPair keyPair) throws NoSuchAlgorithmException {
-        return new RSAKey
-                .Builder((RSAPublicKey) keyPair.getPublic())
-                .privateKey(keyPair.getPrivate())
-                .keyID(UUID.randomUUID().toString())
-                .build();
-    }
+    @Value("${mbanking.security.jwt.key-store.retained-keys:3}")
+    private int retainedKeys;
+
+    // ============= Access Token ===============
 
     @Primary
     @Bean
-    JWKSource<SecurityContext> jwkSource(RSAKey rsaKey) {
-        JWKSet jwkSet = new JWKSet(rsaKey);
-        return (jwkSelector, securityContext) -> jwkSelector.select(jwkSet);
+    JwkKeyStore jwkKeyStore(@Value("${mbanking.security.jwt.access-token-algorithm:RS256}") JwtSigningAlgorithm algorithm) {
+        return new JwkKeyStore(keyStoreDirectory.resolve("access-token-jwks.json"), algorithm, retainedKeys);
     }
 
     @Primary
     @Bean
-    JwtDecoder jwtDecoder(RSAKey rsaKey) throws JOSEException {
-        return NimbusJwtDecoder.withPublicKey(rsaKey.toRSAPublicKey()).build();
+    JwtDecoder jwtDecoder(JwkKeyStore jwkKeyStore,
+                          @Value("${mbanking.security.jwt.decoder-cache.maximum-size:10000}") long cacheSize,
+                          TokenRevocationService tokenRevocationService,
+                          MeterRegistry meterRegistry) {
+        // Access tokens are presented on every call, so verified ones are cached until they expire
+        return new CachingJwtDecoder(buildJwtDecoder(jwkKeyStore, tokenRevocationService),
+                tokenRevocationService, cacheSize, meterRegistry);
     }
 
     @Primary
     @Bean
-    JwtEncoder jwtEncoder(JWKSource<SecurityContext> jwkSource) {
-        return new NimbusJwtEncoder(jwkSource);
+    JwtEncoder jwtEncoder(JwkKeyStore jwkKeyStore,
+                          @Value("${mbanking.security.jwt.access-token-algorithm:RS256}") JwtSigningAlgorithm algorithm) {
+        return new SigningJwtEncoder(new NimbusJwtEncoder(jwkKeyStore), algorithm, jwkKeyStore::getSigningKeyId);
     }
 
     // ============= Refresh Token ===============
-    @Bean("keyPairRefreshToken")
-    KeyPair keyPairRefreshToken() throws NoSuchAlgorithmException {
-        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-        keyPairGenerator.initialize(2048);
-        return keyPairGenerator.generateKeyPair();
+    @Bean("jwkKeyStoreRefreshToken")
+    JwkKeyStore jwkKeyStoreRefreshToken(@Value("${mbanking.security.jwt.refresh-token-algorithm:RS256}") JwtSigningAlgorithm algorithm) {
+        return new JwkKeyStore(keyStoreDirectory.resolve("refresh-token-jwks.json"), algorithm, retainedKeys);
     }
 
-    @Bean("rsaKeyRefreshToken")
-    RSAKey rsaKeyRefreshToken(@Qualifier("keyPairRefreshToken") KeyPair keyPair) throws NoSuchAlgorithmException {
-        return new RSAKey
-                .Builder((RSAPublicKey) keyPair.getPublic())
-                .privateKey(keyPair.getPrivate())
-                .keyID(UUID.randomUUID().toString())
-                .build();
+    @Bean("jwtDecoderRefreshToken")
+    JwtDecoder jwtDecoderRefreshToken(@Qualifier("jwkKeyStoreRefreshToken") JwkKeyStore jwkKeyStore,
+                                      TokenRevocationService tokenRevocationService) {
+        return buildJwtDecoder(jwkKeyStore, tokenRevocationService);
     }
 
-    @Bean("jwkSourceRefreshToken")
-    JWKSource<SecurityContext> jwkSourceRefreshToken(@Qualifier("rsaKeyRefreshToken") RSAKey rsaKey) {
-        JWKSet jwkSet = new JWKSet(rsaKey);
-        return (jwkSelector, securityContext) -> jwkSelector.select(jwkSet);
+    @Bean("jwtEncoderRefreshToken")
+    JwtEncoder jwtEncoderRefreshToken(@Qualifier("jwkKeyStoreRefreshToken") JwkKeyStore jwkKeyStore,
+                                      @Value("${mbanking.security.jwt.refresh-token-algorithm:RS256}") JwtSigningAlgorithm algorithm) {
+        return new SigningJwtEncoder(new NimbusJwtEncoder(jwkKeyStore), algorithm, jwkKeyStore::getSigningKeyId);
     }
 
-    @Bean("jwtDecoderRefreshToken")
-    JwtDecoder jwtDecoderRefreshToken(@Qualifier("rsaKeyRefreshToken") RSAKey rsaKey) throws JOSEException {
-        return NimbusJwtDecoder.withPublicKey(rsaKey.toRSAPublicKey()).build();
-    }
+    // Verifies signatures with the key named by the token's kid (or any key of the token's algorithm);
+    // claims are checked by Spring's default timestamp validators plus the revocation check.
+    // Every supported algorithm is accepted, because only a key of the token's algorithm can verify it:
+    // after an algorithm switch, tokens signed by the old keys keep verifying until those keys rotate out
+    static JwtDecoder buildJwtDecoder(JWKSource<SecurityContext> jwkSource,
+                                      TokenRevocationService tokenRevocationService) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JwtSigningAlgorithm.jwsAlgorithms(), jwkSource));
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
 
-    @Bean("jwtEncoderRefreshToken")
-    JwtEncoder jwtEncoderRefreshToken(@Qualifier("jwkSourceRefreshToken") JWKSource<SecurityContext> jwkSource) {
-        return new NimbusJwtEncoder(jwkSource);
+        NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        jwtDecoder.setJwtValidator(JwtValidators.createDefaultWithValidators(tokenRevocationService));
+        return jwtDecoder;
     }
 
 }
@@ -0,0 +1,61 @@
+package co.istad.mbanking.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Supported token signing schemes.
+ * RS256 (2048-bit RSA): cheapest verification; ES256 (P-256): much cheaper signing and key generation.
+ */
+public enum JwtSigningAlgorithm {
+
+    RS256(SignatureAlgorithm.RS256, JWSAlgorithm.RS256),
+    ES256(SignatureAlgorithm.ES256, JWSAlgorithm.ES256);
+
+    private final SignatureAlgorithm signatureAlgorithm;
+    private final JWSAlgorithm jwsAlgorithm;
+
+    JwtSigningAlgorithm(SignatureAlgorithm signatureAlgorithm, JWSAlgorithm jwsAlgorithm) {
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.jwsAlgorithm = jwsAlgorithm;
+    }
+
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public JWSAlgorithm getJwsAlgorithm() {
+        return jwsAlgorithm;
+    }
+
+    // Every supported scheme, so verifiers accept tokens signed before an algorithm switch
+    public static Set<JWSAlgorithm> jwsAlgorithms() {
+        return Arrays.stream(values()).map(JwtSigningAlgorithm::getJwsAlgorithm).collect(Collectors.toUnmodifiableSet());
+    }
+
+    public JWK generateKey(String keyId) throws JOSEException {
+        return switch (this) {
+            case RS256 -> new RSAKeyGenerator(2048)
+                    .keyID(keyId)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(jwsAlgorithm)
+                    .generate();
+            case ES256 -> new ECKeyGenerator(Curve.P_256)
+                    .keyID(keyId)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(jwsAlgorithm)
+                    .generate();
+        };
+    }
+
+}
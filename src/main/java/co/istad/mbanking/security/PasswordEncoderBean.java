@@ -1,5 +1,6 @@
 package co.istad.mbanking.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -8,9 +9,13 @@ import org.springframework.stereotype.Component;
 @Component
 public class PasswordEncoderBean {
 
+    // bcrypt is isolated on its own pool; 0 threads means half of the available cores.
+    // The queue holds queued-per-thread hashes for each thread, so no caller waits behind more than that many
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(@Value("${mbanking.security.password-hashing.threads:0}") int threads,
+                                    @Value("${mbanking.security.password-hashing.queued-per-thread:16}") int queuedPerThread) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), poolSize, poolSize * Math.max(1, queuedPerThread));
     }
 
 }
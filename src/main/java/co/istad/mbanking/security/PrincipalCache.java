@@ -0,0 +1,76 @@
+package co.istad.mbanking.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Bounded, time-limited cache of loaded principals keyed by email.
+ * Entries must be evicted whenever roles, block status or password of a user change.
+ */
+@Component
+public class PrincipalCache {
+
+    private final AsyncCache<String, CustomUserDetails> cache;
+
+    public PrincipalCache(MeterRegistry meterRegistry,
+                          @Value("${mbanking.security.principal-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${mbanking.security.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+    }
+
+    /**
+     * Concurrent misses for one email share a single load. The in-flight load is a cache entry itself,
+     * so evict() drops it and a load that started before the eviction can never be written back.
+     * The first caller runs the loader itself, after the entry is in place: never under the cache's map lock
+     * (a database call there would pin a virtual thread's carrier), and inside the caller's transaction,
+     * so it reuses the connection the caller already holds instead of waiting for a second one from the pool.
+     */
+    public CustomUserDetails get(String email, Function<String, CustomUserDetails> loader) {
+        CompletableFuture<CustomUserDetails> load = new CompletableFuture<>();
+        CompletableFuture<CustomUserDetails> userDetails = cache.get(email, (key, executor) -> load);
+
+        if (userDetails == load) {
+            try {
+                load.complete(loader.apply(email));
+            } catch (RuntimeException | Error e) {
+                // Failed loads are not cached (the cache drops an entry that completes exceptionally),
+                // and callers waiting on this load are released with the same failure
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return userDetails.join();
+        } catch (CompletionException e) {
+            // Surface the loader's own exception (e.g. UsernameNotFoundException) to callers that waited on it
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void evict(String email) {
+        cache.synchronous().invalidate(email);
+    }
+
+    public void evictAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+}
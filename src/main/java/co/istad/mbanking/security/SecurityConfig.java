@@ -3,6 +3,7 @@ package co.istad.mbanking.security;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -37,6 +38,11 @@ public class SecurityConfig {
     private final UserDetailsService userDetailsService;
     private final PasswordEncoder passwordEncoder;
 
+    // database: authorities reloaded from the (cached) user; token: taken from the signed scope claim
+    @Value("${mbanking.security.authorities-source:token}")
+    private String authoritiesSource;
+
+    // Authorities from the user record; always used for refresh tokens, which carry no scope claim
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
 
@@ -57,6 +63,18 @@ public class SecurityConfig {
         return jwtAuthenticationConverter;
     }
 
+    // Authorities straight from the access token's scope claim, e.g. "ROLE_USER ROLE_CUSTOMER"
+    private JwtAuthenticationConverter scopeClaimAuthenticationConverter() {
+        JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+        jwtGrantedAuthoritiesConverter.setAuthoritiesClaimName("scope");
+        jwtGrantedAuthoritiesConverter.setAuthorityPrefix("");
+
+        var jwtAuthenticationConverter = new JwtAuthenticationConverter();
+        jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwtGrantedAuthoritiesConverter);
+
+        return jwtAuthenticationConverter;
+    }
+
     @Bean
     JwtAuthenticationProvider jwtAuthenticationProvider(@Qualifier("jwtDecoderRefreshToken") JwtDecoder jwtDecoderRefreshToken) {
         JwtAuthenticationProvider provider = new JwtAuthenticationProvider(jwtDecoderRefreshToken);
@@ -100,7 +118,11 @@ public class SecurityConfig {
         // Security Mechanism
         // http.httpBasic(Customizer.withDefaults());
         http.oauth2ResourceServer(oauth2 -> oauth2
-                .jwt(jwtConfigurer -> jwtConfigurer.decoder(jwtDecoder))
+                .jwt(jwtConfigurer -> jwtConfigurer
+                        .decoder(jwtDecoder)
+                        .jwtAuthenticationConverter("database".equalsIgnoreCase(authoritiesSource)
+                                ? jwtAuthenticationConverter()
+                                : scopeClaimAuthenticationConverter()))
         );
 
         // Disable CSRF Token
@@ -0,0 +1,38 @@
+package co.istad.mbanking.security;
+
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+
+import java.util.function.Supplier;
+
+/**
+ * Adds the configured algorithm and the current signing key id to the JWS header, so callers
+ * can keep passing bare claims (NimbusJwtEncoder would otherwise ask for any RS256 key and
+ * fail once a rotated key set holds more than one).
+ */
+class SigningJwtEncoder implements JwtEncoder {
+
+    private final JwtEncoder delegate;
+    private final JwtSigningAlgorithm algorithm;
+    private final Supplier<String> signingKeyId;
+
+    SigningJwtEncoder(JwtEncoder delegate, JwtSigningAlgorithm algorithm, Supplier<String> signingKeyId) {
+        this.delegate = delegate;
+        this.algorithm = algorithm;
+        this.signingKeyId = signingKeyId;
+    }
+
+    @Override
+    public Jwt encode(JwtEncoderParameters parameters) {
+        if (parameters.getJwsHeader() != null) {
+            return delegate.encode(parameters);
+        }
+        JwsHeader jwsHeader = JwsHeader.with(algorithm.getSignatureAlgorithm())
+                .keyId(signingKeyId.get())
+                .build();
+        return delegate.encode(JwtEncoderParameters.from(jwsHeader, parameters.getClaims()));
+    }
+
+}
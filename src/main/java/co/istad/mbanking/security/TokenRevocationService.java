@@ -0,0 +1,72 @@
+package co.istad.mbanking.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory token revocation: every token of a user issued before the user's
+ * revocation instant is rejected. One entry per revoked user, kept only as long as
+ * the longest-lived token (the refresh token) could still be valid.
+ */
+@Service
+public class TokenRevocationService implements OAuth2TokenValidator<Jwt> {
+
+    private static final OAuth2Error REVOKED = new OAuth2Error(
+            OAuth2ErrorCodes.INVALID_TOKEN, "Token has been revoked", null);
+
+    private final Map<String, Instant> revokedBefore = new ConcurrentHashMap<>();
+    private final Duration retention;
+
+    public TokenRevocationService(@Value("${mbanking.security.revocation.retention-days:7}") long retentionDays) {
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    // Revoke every token issued to the user so far (logout, block, role or password change)
+    public void revokeAll(String email) {
+        revokedBefore.put(email, Instant.now());
+    }
+
+    public boolean isRevoked(String email, Instant issuedAt) {
+        Instant revokedAt = revokedBefore.get(email);
+        return revokedAt != null && (issuedAt == null || issuedAt.isBefore(revokedAt));
+    }
+
+    // iat is carried in whole seconds: a token issued in the same second as, but after, the user's
+    // revocation is stamped with the next second so it is not taken for one issued before it
+    public Instant issuedAt(String email) {
+        Instant now = Instant.now();
+        Instant revokedAt = revokedBefore.get(email);
+        if (revokedAt != null && now.truncatedTo(ChronoUnit.SECONDS).isBefore(revokedAt)) {
+            return now.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        }
+        return now;
+    }
+
+    @Override
+    public OAuth2TokenValidatorResult validate(Jwt jwt) {
+        if (jwt.getId() != null && isRevoked(jwt.getId(), jwt.getIssuedAt())) {
+            return OAuth2TokenValidatorResult.failure(REVOKED);
+        }
+        return OAuth2TokenValidatorResult.success();
+    }
+
+    // Tokens older than the retention window have expired anyway, so their entries can go
+    @Scheduled(fixedDelayString = "${mbanking.security.revocation.cleanup-interval-ms:3600000}")
+    public void removeExpiredEntries() {
+        Instant cutoff = Instant.now().minus(retention);
+        revokedBefore.values().removeIf(revokedAt -> revokedAt.isBefore(cutoff));
+    }
+
+}
@@ -13,18 +13,19 @@ import org.springframework.stereotype.Service;
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        System.out.println("Username: " + username);
+        // Warm path: no users/roles query; misses (including unknown users) go to the database
+        return principalCache.get(username, this::loadFromDatabase);
+    }
 
+    private CustomUserDetails loadFromDatabase(String username) {
         User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException(username));
 
-        CustomUserDetails customUserDetails = new CustomUserDetails();
-        customUserDetails.setUser(user);
-
-        return customUserDetails;
+        return new CustomUserDetails(user);
     }
 
 }
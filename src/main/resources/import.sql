@@ -0,0 +1,12 @@
+-- Executed by Hibernate after schema creation (spring.jpa.hibernate.ddl-auto=create / create-drop)
+CREATE INDEX IF NOT EXISTS idx_transactions_owner_history ON transactions (owner_id, transaction_at DESC, id DESC) WHERE is_deleted = false;
+CREATE INDEX IF NOT EXISTS idx_transactions_receiver_history ON transactions (receiver_id, transaction_at DESC, id DESC) WHERE is_deleted = false;
+CREATE INDEX IF NOT EXISTS idx_transactions_transaction_at ON transactions (transaction_at);
+CREATE INDEX IF NOT EXISTS idx_user_accounts_user ON user_accounts (user_id);
+CREATE INDEX IF NOT EXISTS idx_mail_outbox_due ON mail_outbox (next_attempt_at, id) WHERE status IN ('PENDING', 'SENDING');
+CREATE INDEX IF NOT EXISTS idx_cards_card_type ON cards (card_type_id, id DESC);
+CREATE INDEX IF NOT EXISTS idx_cards_expired_at ON cards (expired_at);
+CREATE INDEX IF NOT EXISTS idx_cards_holder_prefix ON cards (UPPER(holder) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_cards_frozen ON cards (id DESC) WHERE is_frozen = true;
+CREATE INDEX IF NOT EXISTS idx_cards_deleted ON cards (id DESC) WHERE is_deleted = true;
+CREATE INDEX IF NOT EXISTS idx_account_balance_shards_credits ON account_balance_shards (account_id) WHERE balance <> 0;
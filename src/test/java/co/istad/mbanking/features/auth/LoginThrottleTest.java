@@ -0,0 +1,88 @@
+package co.istad.mbanking.features.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginThrottleTest {
+
+    // 3 attempts per email and IP, 10 per IP; the email bucket gains one attempt a second
+    private final LoginThrottle loginThrottle = new LoginThrottle(3, 60, 10, 1, 1000);
+
+    @Test
+    void emailBucketIsExhaustedAfterItsCapacity() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("alice@gmail.com", "10.0.0.1");
+        }
+
+        assertTooManyRequests(() -> loginThrottle.acquire("alice@gmail.com", "10.0.0.1"));
+    }
+
+    @Test
+    void guessesFromOneIpDoNotLockTheEmailOutElsewhere() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("dave@gmail.com", "10.0.3.1");
+        }
+        assertTooManyRequests(() -> loginThrottle.acquire("dave@gmail.com", "10.0.3.1"));
+
+        assertThatCode(() -> loginThrottle.acquire("dave@gmail.com", "10.0.3.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void emailsAreThrottledCaseAndWhitespaceInsensitively() {
+        loginThrottle.acquire("alice@gmail.com", "10.0.0.2");
+        loginThrottle.acquire(" Alice@Gmail.com", "10.0.0.2");
+        loginThrottle.acquire("ALICE@GMAIL.COM ", "10.0.0.2");
+
+        assertTooManyRequests(() -> loginThrottle.acquire("alice@gmail.com", "10.0.0.2"));
+    }
+
+    @Test
+    void ipBucketIsSharedAcrossEmails() {
+        for (int i = 0; i < 10; i++) {
+            loginThrottle.acquire("user" + i + "@gmail.com", "10.0.0.1");
+        }
+
+        assertTooManyRequests(() -> loginThrottle.acquire("other@gmail.com", "10.0.0.1"));
+        assertThatCode(() -> loginThrottle.acquire("other@gmail.com", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void emailBucketRefillsOverTime() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("bob@gmail.com", "10.0.1.1");
+        }
+        assertTooManyRequests(() -> loginThrottle.acquire("bob@gmail.com", "10.0.1.1"));
+
+        Thread.sleep(1_200);
+
+        // One second buys exactly one more attempt
+        assertThatCode(() -> loginThrottle.acquire("bob@gmail.com", "10.0.1.1")).doesNotThrowAnyException();
+        assertTooManyRequests(() -> loginThrottle.acquire("bob@gmail.com", "10.0.1.1"));
+    }
+
+    @Test
+    void resetGivesTheEmailItsFullAllowanceBack() {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("carol@gmail.com", "10.0.2.1");
+        }
+
+        loginThrottle.reset("Carol@gmail.com", "10.0.2.1");
+
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquire("carol@gmail.com", "10.0.2.1");
+        }
+        assertTooManyRequests(() -> loginThrottle.acquire("carol@gmail.com", "10.0.2.1"));
+    }
+
+    private static void assertTooManyRequests(Runnable attempt) {
+        assertThatThrownBy(attempt::run)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+    }
+
+}
@@ -0,0 +1,142 @@
+package co.istad.mbanking.features.card;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CardNumberAllocatorTest {
+
+    private static final long IDENTIFIER_SPACE = 1_000_000_000L;
+
+    // In-memory stand-in for the card_number_sequences upsert
+    private final AtomicLong nextValue = new AtomicLong();
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final CardNumberAllocator allocator = allocator("test-card-number-secret");
+
+    @Test
+    void unpermuteReversesPermute() {
+        for (long value : sample()) {
+            assertThat(allocator.unpermute(allocator.permute(value))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void permuteIsBijectiveOnASample() {
+        Set<Long> images = new HashSet<>();
+        for (long value = 0; value < 100_000; value++) {
+            assertThat(images.add(allocator.permute(value))).isTrue();
+        }
+    }
+
+    @Test
+    void permuteStaysBelowTheIdentifierSpace() {
+        for (long value : sample()) {
+            assertThat(allocator.permute(value)).isBetween(0L, IDENTIFIER_SPACE - 1);
+        }
+    }
+
+    @Test
+    void allocatedNumbersAreLuhnValidAndMapBackToTheirSequence() {
+        for (int i = 0; i < 250; i++) {
+            String cardNumber = allocator.allocate();
+
+            assertThat(cardNumber).hasSize(16).startsWith("400000").containsOnlyDigits();
+            assertThat(isLuhnValid(cardNumber)).isTrue();
+            assertThat(allocator.sequenceOf(cardNumber)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void bulkAllocationReservesOneContiguousBlock() {
+        allocator.allocate();
+
+        List<String> cardNumbers = allocator.allocate(10);
+
+        assertThat(cardNumbers).hasSize(10).doesNotHaveDuplicates();
+        assertThat(cardNumbers.stream().map(allocator::sequenceOf))
+                .containsExactly(100L, 101L, 102L, 103L, 104L, 105L, 106L, 107L, 108L, 109L);
+    }
+
+    @Test
+    void numbersHeldByExistingCardsAreSkipped() {
+        // The first number of the first block belongs to a card issued before the allocator
+        when(cardRepository.findNumbersIn(anyCollection()))
+                .thenAnswer(invocation -> List.of(invocation.<Collection<String>>getArgument(0).iterator().next()))
+                .thenReturn(List.of());
+
+        assertThat(allocator.sequenceOf(allocator.allocate())).isEqualTo(1);
+        assertThat(allocator.sequenceOf(allocator.allocate())).isEqualTo(2);
+    }
+
+    @Test
+    void bulkAllocationTopsUpNumbersThatWereTaken() {
+        // The taken number is replaced from a second block of one
+        when(cardRepository.findNumbersIn(anyCollection()))
+                .thenAnswer(invocation -> List.of(invocation.<Collection<String>>getArgument(0).iterator().next()))
+                .thenReturn(List.of());
+
+        List<String> cardNumbers = allocator.allocate(10);
+
+        assertThat(cardNumbers).hasSize(10).doesNotHaveDuplicates();
+        assertThat(cardNumbers.stream().map(allocator::sequenceOf))
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    @Test
+    void differentSecretsGiveDifferentNumbers() {
+        CardNumberAllocator other = allocator("another-card-number-secret");
+
+        assertThat(other.permute(12345)).isNotEqualTo(allocator.permute(12345));
+    }
+
+    @Test
+    void blankSecretIsRejected() {
+        assertThatThrownBy(() -> allocator(" "))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("MBANKING_CARD_NUMBER_SECRET");
+    }
+
+    private CardNumberAllocator allocator(String secret) {
+        CardNumberSequenceRepository repository = mock(CardNumberSequenceRepository.class);
+        when(repository.reserveBlock(anyString(), anyLong()))
+                .thenAnswer(invocation -> nextValue.addAndGet(invocation.getArgument(1)));
+        return new CardNumberAllocator(repository, cardRepository, mock(PlatformTransactionManager.class), "400000", 100, secret);
+    }
+
+    // Both ends of [0, 10^9) and a spread in between
+    private static long[] sample() {
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i < 100 ? i
+                    : i < 200 ? IDENTIFIER_SPACE - 1 - (i - 100)
+                    : (i * 99_991L) % IDENTIFIER_SPACE;
+        }
+        return values;
+    }
+
+    private static boolean isLuhnValid(String cardNumber) {
+        int sum = 0;
+        for (int i = 0; i < cardNumber.length(); i++) {
+            int digit = cardNumber.charAt(cardNumber.length() - 1 - i) - '0';
+            if (i % 2 == 1) {
+                digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+
+}
@@ -0,0 +1,145 @@
+package co.istad.mbanking.features.mail;
+
+import co.istad.mbanking.domain.MailOutbox;
+import co.istad.mbanking.features.auth.AuthService;
+import co.istad.mbanking.features.auth.dto.RegisterRequest;
+import co.istad.mbanking.features.user.UserRepository;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Outbox delivery against a real Postgres (the claim query is FOR UPDATE SKIP LOCKED) and a GreenMail SMTP server.
+ * The scheduled poll is pushed out of the way; each test drives dispatch() itself.
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=mbanking@localhost",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "mbanking.mail.outbox.poll-interval-ms=3600000",
+        "mbanking.mail.outbox.max-attempts=3",
+        "mbanking.mail.outbox.backoff-ms=50",
+        "mbanking.card.number.secret=test-card-number-secret",
+        "mbanking.security.jwt.key-store.directory=build/test-keys"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class MailOutboxDispatcherTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication())
+            .withPerMethodLifecycle(true);
+
+    @Autowired
+    private MailService mailService;
+    @Autowired
+    private MailOutboxDispatcher mailOutboxDispatcher;
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+    @Autowired
+    private AuthService authService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void clearOutbox() {
+        mailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void claimedMessageIsSentAndMarkedSent() throws Exception {
+        mailService.enqueue("alice@localhost", "Hello", "<p>code 123456</p>", true);
+
+        mailOutboxDispatcher.dispatch();
+
+        MailOutbox sent = awaitStatus("SENT");
+        assertEquals(0, sent.getAttempts());
+        assertEquals("", sent.getBody());
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(1, received.length);
+        assertEquals("Hello", received[0].getSubject());
+    }
+
+    @Test
+    void failingMessageBacksOffAndEndsFailed() {
+        greenMail.stop();
+        mailService.enqueue("bob@localhost", "Hello", "body", false);
+
+        LocalDateTime beforeFirstAttempt = LocalDateTime.now();
+        mailOutboxDispatcher.dispatch();
+
+        // First failure: back to PENDING, due again only after the backoff
+        MailOutbox retried = await().atMost(Duration.ofSeconds(10))
+                .until(this::onlyMessage, mailOutbox -> mailOutbox.getAttempts() == 1);
+        assertEquals("PENDING", retried.getStatus());
+        assertTrue(retried.getNextAttemptAt().isAfter(beforeFirstAttempt.plusNanos(50_000_000)));
+        assertTrue(retried.getLastError() != null && !retried.getLastError().isEmpty());
+
+        // Keep polling until the attempts run out
+        MailOutbox failed = await().atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(50))
+                .until(() -> {
+                    mailOutboxDispatcher.dispatch();
+                    return onlyMessage();
+                }, mailOutbox -> "FAILED".equals(mailOutbox.getStatus()));
+        assertEquals(3, failed.getAttempts());
+    }
+
+    @Test
+    void registrationSucceedsWhileSmtpIsDown() throws Exception {
+        greenMail.stop();
+
+        authService.register(new RegisterRequest("Carol", "Female", LocalDate.of(2000, 1, 1),
+                "90009000", "012900900", "carol@localhost", "Qwer123@#$", "Qwer123@#$", "1234"));
+
+        assertTrue(userRepository.existsByEmail("carol@localhost"));
+        MailOutbox queued = onlyMessage();
+        assertEquals("PENDING", queued.getStatus());
+        assertEquals("carol@localhost", queued.getRecipient());
+
+        // Delivered once the SMTP server is back
+        greenMail.start();
+        mailOutboxDispatcher.dispatch();
+        awaitStatus("SENT");
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    private MailOutbox awaitStatus(String status) {
+        return await().atMost(Duration.ofSeconds(10))
+                .until(this::onlyMessage, mailOutbox -> status.equals(mailOutbox.getStatus()));
+    }
+
+    private MailOutbox onlyMessage() {
+        List<MailOutbox> messages = mailOutboxRepository.findAll();
+        assertEquals(1, messages.size());
+        return messages.get(0);
+    }
+
+}
@@ -0,0 +1,66 @@
+package co.istad.mbanking.features.transaction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionCursorTest {
+
+    @Test
+    void encodeThenDecodeIsTheSamePosition() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2024, 5, 17, 9, 30, 15, 123_456_000), 4821);
+
+        assertThat(TransactionCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new TransactionCursor(LocalDateTime.of(2024, 5, 17, 9, 30), Integer.MAX_VALUE).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingCursorStartsAfterEveryTransaction() {
+        TransactionCursor start = TransactionCursor.decode(null);
+
+        assertThat(TransactionCursor.decode("  ")).isEqualTo(start);
+        assertThat(start.id()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(start.transactionAt()).isAfter(LocalDateTime.now().plusYears(1000));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "not a cursor!",
+            "MjAyNC0wNS0xN1QwOTozMA",
+            "MjAyNC0wNS0xN1QwOTozMHxhYmM",
+            "eWVzdGVyZGF5fDQy"
+    })
+    void tamperedCursorIsBadRequest(String cursor) {
+        assertBadRequest(cursor);
+    }
+
+    @Test
+    void cursorWithAnEditedTimestampIsBadRequest() {
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2024-13-40T25:61|42".getBytes(StandardCharsets.UTF_8));
+
+        assertBadRequest(tampered);
+    }
+
+    private static void assertBadRequest(String cursor) {
+        assertThatThrownBy(() -> TransactionCursor.decode(cursor))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+}
@@ -0,0 +1,178 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.base.BasedTransactionType;
+import co.istad.mbanking.domain.Account;
+import co.istad.mbanking.domain.Transaction;
+import co.istad.mbanking.domain.User;
+import co.istad.mbanking.domain.UserAccount;
+import co.istad.mbanking.features.account.UserAccountRepository;
+import co.istad.mbanking.features.transaction.dto.TransactionHistoryRow;
+import co.istad.mbanking.features.user.UserRepository;
+import co.istad.mbanking.mapper.TransactionMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * History pages are read through flat projections: one prepared statement per 20-row page
+ * (plus the count query for offset pages), however many accounts the rows touch.
+ * Scheduled jobs are pushed out so they don't add statements while the counters run.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "mbanking.mail.outbox.poll-interval-ms=3600000",
+        "mbanking.transaction.sharded-balance.consolidate-interval-ms=3600000",
+        "mbanking.card.number.secret=test-card-number-secret",
+        "mbanking.security.jwt.key-store.directory=build/test-keys"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionHistoryQueryCountTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int TRANSACTIONS = 45;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionMapper transactionMapper;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+    private Account accountA;
+
+    @BeforeAll
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = userRepository.findByEmail("customer@gmail.com").orElseThrow();
+        accountA = createAccount(user, "910000001");
+        Account accountB = createAccount(user, "910000002");
+
+        // Transfers in both directions, so every row joins two different accounts
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setOwner(i % 2 == 0 ? accountA : accountB);
+            transaction.setReceiver(i % 2 == 0 ? accountB : accountA);
+            transaction.setAmount(BigDecimal.ONE);
+            transaction.setRemark("history " + i);
+            transaction.setTransactionAt(start.plusMinutes(i));
+            transaction.setStatus(true);
+            transaction.setIsDeleted(false);
+            transaction.setTransactionType(BasedTransactionType.TRANSFER.toString());
+            transactions.add(transaction);
+        }
+        transactionRepository.saveAll(transactions);
+    }
+
+    @BeforeEach
+    void clearStatistics() {
+        statistics.clear();
+    }
+
+    @Test
+    void accountCursorPageIsOneStatement() {
+        TransactionCursor start = TransactionCursor.decode(null);
+        List<TransactionHistoryRow> rows = transactionRepository.findTransactionHistoryByAccountIdAfter(
+                accountA.getId(), null, start.transactionAt(), start.id(),
+                PageRequest.of(0, PAGE_SIZE));
+        rows.forEach(transactionMapper::toTransactionResponse);
+
+        assertEquals(PAGE_SIZE, rows.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void userCursorPageIsOneStatement() {
+        TransactionCursor start = TransactionCursor.decode(null);
+        List<TransactionHistoryRow> rows = transactionRepository.findTransactionHistoryByUserAfter(
+                user.getId(), null, start.transactionAt(), start.id(), PAGE_SIZE);
+        rows.forEach(transactionMapper::toTransactionResponse);
+
+        assertEquals(PAGE_SIZE, rows.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void userCursorPagesListEveryTransactionOnce() {
+        List<Integer> ids = new ArrayList<>();
+        TransactionCursor after = TransactionCursor.decode(null);
+        List<TransactionHistoryRow> rows;
+        do {
+            rows = transactionRepository.findTransactionHistoryByUserAfter(
+                    user.getId(), null, after.transactionAt(), after.id(), PAGE_SIZE);
+            rows.forEach(row -> ids.add(row.getId()));
+            if (!rows.isEmpty()) {
+                TransactionHistoryRow last = rows.get(rows.size() - 1);
+                after = new TransactionCursor(last.getTransactionAt(), last.getId());
+            }
+        } while (rows.size() == PAGE_SIZE);
+
+        // Transfers between the user's own accounts match on both sides but are listed once
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+        assertTrue(ids.size() >= TRANSACTIONS);
+    }
+
+    @Test
+    void accountOffsetPageIsOneStatementPlusCount() {
+        Page<TransactionHistoryRow> page = transactionRepository.findTransactionHistoryByAccountId(
+                accountA.getId(), null, PageRequest.of(1, PAGE_SIZE));
+        page.forEach(transactionMapper::toTransactionResponse);
+
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        assertEquals(TRANSACTIONS, page.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private Account createAccount(User user, String actNo) {
+        Account account = new Account();
+        account.setActNo(actNo);
+        account.setAliasName(actNo);
+        account.setBalance(BigDecimal.ZERO);
+        account.setTransferLimit(BigDecimal.TEN);
+        account.setIsHidden(false);
+        account.setIsDeleted(false);
+
+        // The account is persisted through UserAccount's cascade, as account creation does
+        UserAccount userAccount = new UserAccount();
+        userAccount.setUser(user);
+        userAccount.setAccount(account);
+        userAccount.setIsBlocked(false);
+        userAccount.setIsDeleted(false);
+        userAccount.setCreatedAt(LocalDateTime.now());
+        return userAccountRepository.save(userAccount).getAccount();
+    }
+
+}
@@ -0,0 +1,166 @@
+package co.istad.mbanking.features.transaction;
+
+import co.istad.mbanking.domain.Account;
+import co.istad.mbanking.domain.User;
+import co.istad.mbanking.domain.UserAccount;
+import co.istad.mbanking.features.account.AccountRepository;
+import co.istad.mbanking.features.account.UserAccountRepository;
+import co.istad.mbanking.features.transaction.dto.TransferRequest;
+import co.istad.mbanking.features.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Transfers A to B and B to A at the same time against a real Postgres:
+ * none may fail with a deadlock or lock error, and the total balance of both accounts is conserved
+ * while the shard consolidator runs alongside them.
+ */
+@SpringBootTest(properties = {
+        "mbanking.card.number.secret=test-card-number-secret",
+        "mbanking.security.jwt.key-store.directory=build/test-keys"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class TransferConcurrencyTest {
+
+    private static final String EMAIL = "customer@gmail.com";
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BalanceShardService balanceShardService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void oppositeTransfersConserveBalanceWithoutDeadlock() throws InterruptedException {
+        User user = userRepository.findByEmail(EMAIL).orElseThrow();
+        Account accountA = createAccount(user, "900000001");
+        Account accountB = createAccount(user, "900000002");
+
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            // Half the threads send A to B, the other half B to A
+            boolean aToB = t % 2 == 0;
+            executor.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(EMAIL, null, List.of()));
+                try {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        transfer(aToB ? accountA : accountB, aToB ? accountB : accountA,
+                                BigDecimal.valueOf(1 + i % 7), succeeded, failures);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            });
+        }
+
+        // The consolidator folds shards into both accounts while the transfers run
+        Thread consolidator = new Thread(() -> {
+            while (!executor.isTerminated()) {
+                balanceShardService.consolidate();
+            }
+        });
+
+        start.countDown();
+        consolidator.start();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Transfers did not finish");
+        consolidator.join();
+
+        assertTrue(failures.isEmpty(), () -> "Transfers failed: " + failures);
+        assertTrue(succeeded.get() > 0);
+        assertEquals(0, OPENING_BALANCE.multiply(BigDecimal.TWO).compareTo(totalBalance(accountA, accountB)));
+
+        // Folding what is left in the shards must not change the total either
+        balanceShardService.consolidate();
+        assertEquals(0, OPENING_BALANCE.multiply(BigDecimal.TWO).compareTo(totalBalance(accountA, accountB)));
+    }
+
+    private void transfer(Account from, Account to, BigDecimal amount,
+                          AtomicInteger succeeded, Queue<Throwable> failures) {
+        try {
+            transactionService.transfer(
+                    new TransferRequest(from.getActNo(), to.getActNo(), amount, "concurrency test"), null, null);
+            succeeded.incrementAndGet();
+        } catch (ResponseStatusException e) {
+            // Running out of money is a valid outcome; anything else is not
+            if (e.getStatusCode() != HttpStatus.BAD_REQUEST) {
+                failures.add(e);
+            }
+        } catch (RuntimeException e) {
+            failures.add(e);
+        }
+    }
+
+    private BigDecimal totalBalance(Account... accounts) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account account : accounts) {
+            Account reloaded = accountRepository.findById(account.getId()).orElseThrow();
+            balanceShardService.loadPendingCredits(reloaded);
+            total = total.add(reloaded.getAvailableBalance());
+        }
+        return total;
+    }
+
+    private Account createAccount(User user, String actNo) {
+        Account account = new Account();
+        account.setActNo(actNo);
+        account.setAliasName(actNo);
+        account.setBalance(OPENING_BALANCE);
+        account.setTransferLimit(OPENING_BALANCE);
+        account.setIsHidden(false);
+        account.setIsDeleted(false);
+
+        // The account is persisted through UserAccount's cascade, as account creation does
+        UserAccount userAccount = new UserAccount();
+        userAccount.setUser(user);
+        userAccount.setAccount(account);
+        userAccount.setIsBlocked(false);
+        userAccount.setIsDeleted(false);
+        userAccount.setCreatedAt(LocalDateTime.now());
+        return userAccountRepository.save(userAccount).getAccount();
+    }
+
+}
@@ -0,0 +1,108 @@
+package co.istad.mbanking.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingJwtDecoderTest {
+
+    private static final String EMAIL = "customer@gmail.com";
+
+    private final TokenRevocationService tokenRevocationService = new TokenRevocationService(7);
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+
+    @Test
+    void hitSkipsTheDelegate() {
+        Jwt jwt = jwt(Duration.ofMinutes(30));
+        CachingJwtDecoder decoder = decoder(token -> jwt);
+
+        Jwt first = decoder.decode("token");
+        Jwt second = decoder.decode("token");
+
+        assertThat(second).isSameAs(first);
+        assertThat(delegateCalls).hasValue(1);
+    }
+
+    @Test
+    void hitStillRunsTheRevocationValidator() {
+        CachingJwtDecoder decoder = decoder(token -> jwt(Duration.ofMinutes(30)));
+        decoder.decode("token");
+
+        tokenRevocationService.revokeAll(EMAIL);
+
+        assertThatThrownBy(() -> decoder.decode("token")).isInstanceOf(JwtValidationException.class);
+        assertThat(delegateCalls).hasValue(1);
+
+        // The revoked entry is dropped, so the next presentation goes back to the delegate
+        decoder.decode("token");
+        assertThat(delegateCalls).hasValue(2);
+    }
+
+    @Test
+    void entryExpiresAtTheTokenExpiry() throws InterruptedException {
+        CachingJwtDecoder decoder = decoder(token -> jwt(Duration.ofSeconds(1)));
+
+        decoder.decode("token");
+        decoder.decode("token");
+        assertThat(delegateCalls).hasValue(1);
+
+        Thread.sleep(1_200);
+
+        decoder.decode("token");
+        assertThat(delegateCalls).hasValue(2);
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        CachingJwtDecoder decoder = decoder(token -> {
+            throw new BadJwtException("Invalid signature");
+        });
+
+        assertThatThrownBy(() -> decoder.decode("token")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("token")).isInstanceOf(BadJwtException.class);
+        assertThat(delegateCalls).hasValue(2);
+    }
+
+    @Test
+    void tokensWithoutExpiryAreNotCached() {
+        CachingJwtDecoder decoder = decoder(token -> Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .jti(EMAIL)
+                .issuedAt(Instant.now().minusSeconds(60))
+                .build());
+
+        decoder.decode("token");
+        decoder.decode("token");
+
+        assertThat(delegateCalls).hasValue(2);
+    }
+
+    private CachingJwtDecoder decoder(JwtDecoder delegate) {
+        return new CachingJwtDecoder(token -> {
+            delegateCalls.incrementAndGet();
+            return delegate.decode(token);
+        }, tokenRevocationService, 100, new SimpleMeterRegistry());
+    }
+
+    // Issued a minute ago, so a revocation made now covers it
+    private static Jwt jwt(Duration validFor) {
+        Instant now = Instant.now();
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .jti(EMAIL)
+                .issuedAt(now.minusSeconds(60))
+                .expiresAt(now.plus(validFor))
+                .build();
+    }
+
+}
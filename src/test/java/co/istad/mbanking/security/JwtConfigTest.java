@@ -0,0 +1,65 @@
+package co.istad.mbanking.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtConfigTest {
+
+    private static final String EMAIL = "customer@gmail.com";
+
+    private final TokenRevocationService tokenRevocationService = new TokenRevocationService(7);
+
+    @TempDir
+    Path keyStoreDirectory;
+
+    @Test
+    void tokensSignedBeforeAnAlgorithmSwitchKeepVerifying() {
+        Path file = keyStoreDirectory.resolve("access-token-jwks.json");
+        String rsaToken = encode(new JwkKeyStore(file, JwtSigningAlgorithm.RS256, 2), JwtSigningAlgorithm.RS256);
+
+        // Restarted on ES256: a new EC key signs, the RSA key stays in the set
+        JwkKeyStore switched = new JwkKeyStore(file, JwtSigningAlgorithm.ES256, 2);
+        String ecToken = encode(switched, JwtSigningAlgorithm.ES256);
+        JwtDecoder decoder = JwtConfig.buildJwtDecoder(switched, tokenRevocationService);
+
+        assertThat(decoder.decode(rsaToken).getSubject()).isEqualTo(EMAIL);
+        assertThat(decoder.decode(ecToken).getSubject()).isEqualTo(EMAIL);
+    }
+
+    @Test
+    void oldAlgorithmStopsVerifyingOnceItsKeysRotateOut() {
+        Path file = keyStoreDirectory.resolve("access-token-jwks.json");
+        String rsaToken = encode(new JwkKeyStore(file, JwtSigningAlgorithm.RS256, 2), JwtSigningAlgorithm.RS256);
+
+        JwkKeyStore switched = new JwkKeyStore(file, JwtSigningAlgorithm.ES256, 2);
+        switched.rotate();
+        JwtDecoder decoder = JwtConfig.buildJwtDecoder(switched, tokenRevocationService);
+
+        assertThatThrownBy(() -> decoder.decode(rsaToken)).isInstanceOf(JwtException.class);
+    }
+
+    private static String encode(JwkKeyStore jwkKeyStore, JwtSigningAlgorithm algorithm) {
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .subject(EMAIL)
+                .issuedAt(now)
+                .expiresAt(now.plus(Duration.ofMinutes(30)))
+                .build();
+        return new SigningJwtEncoder(new NimbusJwtEncoder(jwkKeyStore), algorithm, jwkKeyStore::getSigningKeyId)
+                .encode(JwtEncoderParameters.from(claims))
+                .getTokenValue();
+    }
+
+}
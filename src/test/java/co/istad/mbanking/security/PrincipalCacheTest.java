@@ -0,0 +1,125 @@
+package co.istad.mbanking.security;
+
+import co.istad.mbanking.domain.Role;
+import co.istad.mbanking.domain.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrincipalCacheTest {
+
+    private final PrincipalCache principalCache = new PrincipalCache(new SimpleMeterRegistry(), 100, 300);
+
+    @Test
+    void evictDuringLoadIsNotOverwrittenByTheStaleLoad() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+
+        CompletableFuture<CustomUserDetails> staleLoad = CompletableFuture.supplyAsync(() ->
+                principalCache.get("a@mail.com", email -> {
+                    loadStarted.countDown();
+                    await(releaseLoad);
+                    return userDetails("old-hash");
+                }));
+
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        principalCache.evict("a@mail.com");
+        releaseLoad.countDown();
+        assertThat(staleLoad.get(5, TimeUnit.SECONDS).getPassword()).isEqualTo("old-hash");
+
+        CustomUserDetails reloaded = principalCache.get("a@mail.com", email -> userDetails("new-hash"));
+        assertThat(reloaded.getPassword()).isEqualTo("new-hash");
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+
+        CompletableFuture<?>[] callers = new CompletableFuture<?>[8];
+        for (int i = 0; i < callers.length; i++) {
+            callers[i] = CompletableFuture.runAsync(() -> principalCache.get("b@mail.com", email -> {
+                loads.incrementAndGet();
+                await(releaseLoad);
+                return userDetails("hash");
+            }));
+        }
+        Thread.sleep(200);
+        releaseLoad.countDown();
+        CompletableFuture.allOf(callers).get(5, TimeUnit.SECONDS);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loaderRunsOnTheCallingThread() {
+        Thread caller = Thread.currentThread();
+
+        principalCache.get("e@mail.com", email -> {
+            // So a load inside the caller's transaction reuses its connection
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            return userDetails("hash");
+        });
+    }
+
+    @Test
+    void failedLoadIsRethrownAndNotCached() {
+        assertThatThrownBy(() -> principalCache.get("c@mail.com", email -> {
+            throw new UsernameNotFoundException(email);
+        })).isInstanceOf(UsernameNotFoundException.class);
+
+        assertThat(principalCache.get("c@mail.com", email -> userDetails("hash")).getPassword()).isEqualTo("hash");
+    }
+
+    @Test
+    void cachedPrincipalIsASnapshotOfTheLoadedUser() {
+        User user = user("hash");
+        user.setId(7);
+        user.setUuid("d-uuid");
+        user.setRoles(List.of(Role.builder().name("CUSTOMER").build()));
+        principalCache.get("d@mail.com", email -> new CustomUserDetails(user));
+
+        // Later changes to the entity do not reach the shared cache entry
+        user.setPassword("changed");
+        user.getRoles().get(0).setName("ADMIN");
+
+        CustomUserDetails cached = principalCache.get("d@mail.com", email -> userDetails("other"));
+        assertThat(cached.getId()).isEqualTo(7);
+        assertThat(cached.getUuid()).isEqualTo("d-uuid");
+        assertThat(cached.getPassword()).isEqualTo("hash");
+        assertThat(cached.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_CUSTOMER");
+    }
+
+    private static CustomUserDetails userDetails(String passwordHash) {
+        return new CustomUserDetails(user(passwordHash));
+    }
+
+    private static User user(String passwordHash) {
+        User user = new User();
+        user.setPassword(passwordHash);
+        user.setIsAccountNonExpired(true);
+        user.setIsAccountNonLocked(true);
+        user.setIsCredentialsNonExpired(true);
+        user.setIsDeleted(false);
+        return user;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}